@@ -0,0 +1,70 @@
+package wolox.training.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.security.AuthenticationCache;
+import wolox.training.security.TokenService;
+
+/**
+ * Per-request cost of each way a client can authenticate: a full HTTP Basic BCrypt check, a Basic
+ * request answered from {@link AuthenticationCache}, and a bearer token verified by {@link TokenService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    private static final String USERNAME = "user";
+    private static final String PASSWORD = "1234";
+
+    private String passwordHash;
+    private AuthenticationCache authenticationCache;
+    private TokenService tokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        passwordHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt());
+
+        authenticationCache = new AuthenticationCache();
+        ReflectionTestUtils.setField(authenticationCache, "maxSize", 10000L);
+        ReflectionTestUtils.setField(authenticationCache, "ttlSeconds", 300L);
+        authenticationCache.init();
+        authenticationCache.markVerified(USERNAME, PASSWORD);
+
+        tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "ttlSeconds", 3600L);
+        tokenService.init();
+        token = tokenService.issue(USERNAME).getToken();
+    }
+
+    @Benchmark
+    public boolean basicWithBCrypt() {
+        return BCrypt.checkpw(PASSWORD, passwordHash);
+    }
+
+    @Benchmark
+    public boolean basicWithCachedCredentials() {
+        return authenticationCache.isVerified(USERNAME, PASSWORD);
+    }
+
+    @Benchmark
+    public String bearerToken() {
+        return tokenService.verify(token);
+    }
+
+}
@@ -0,0 +1,76 @@
+package wolox.training.benchmarks;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+
+/**
+ * PostgreSQL settings for the benchmarks that need a database, read from {@code -Dbenchmark.datasource.url},
+ * {@code .username} and {@code .password}, with no defaults so a run never lands on a real database by
+ * accident. Everything happens in a schema of its own, {@code benchmark} unless {@code .schema} says otherwise,
+ * which the migrations create on setup and which is dropped on tear down.
+ */
+class BenchmarkDatabase {
+
+    private static final String PREFIX = "benchmark.datasource.";
+
+    private final String url;
+
+    private final String username;
+
+    private final String password;
+
+    private final String schema;
+
+    private final Flyway flyway;
+
+    BenchmarkDatabase() {
+        url = required("url");
+        username = required("username");
+        password = required("password");
+        schema = System.getProperty(PREFIX + "schema", "benchmark");
+
+        flyway = Flyway.configure().dataSource(url, username, password).schemas(schema).load();
+    }
+
+    /**
+     * Creates the schema if needed and brings it to the latest migration.
+     */
+    void migrate() {
+        flyway.migrate();
+    }
+
+    /**
+     * Drops the schema and everything the benchmark left in it.
+     */
+    void drop() {
+        flyway.clean();
+    }
+
+    /**
+     * @return a registry builder connecting to the schema, to which each benchmark adds its own settings.
+     * {@code public} stays on the search path for the extensions the migrations use.
+     */
+    StandardServiceRegistryBuilder registry() {
+        return new StandardServiceRegistryBuilder()
+            .applySetting(AvailableSettings.URL, url)
+            .applySetting(AvailableSettings.USER, username)
+            .applySetting(AvailableSettings.PASS, password)
+            .applySetting("hibernate.connection.currentSchema", schema + ",public")
+            .applySetting(AvailableSettings.DIALECT, "org.hibernate.dialect.PostgreSQLDialect")
+            .applySetting("hibernate.temp.use_jdbc_metadata_defaults", false);
+    }
+
+    //region private methods
+    private static String required(String name) {
+        String value = System.getProperty(PREFIX + name);
+
+        if(value == null) {
+            throw new IllegalStateException("Set -D" + PREFIX + name + " to run the database benchmarks");
+        }
+
+        return value;
+    }
+    //endregion
+
+}
@@ -0,0 +1,87 @@
+package wolox.training.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import wolox.training.models.Book;
+import wolox.training.repositories.PooledLoSequenceGenerator;
+
+/**
+ * Book insert throughput through Hibernate with JDBC batching, when every id costs a sequence call
+ * (allocation size 1, as before) and when ids are reserved in blocks by the pooled-lo generator.
+ * Needs a PostgreSQL database, see {@link BenchmarkDatabase}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookInsertBenchmark {
+
+    private static final int BOOKS_PER_TRANSACTION = 50;
+
+    private static final String ISBN_PREFIX = "bench-";
+
+    @Param({"1", "50"})
+    private int allocationSize;
+
+    private BenchmarkDatabase database;
+
+    private SessionFactory sessionFactory;
+
+    private final AtomicLong isbns = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.migrate();
+
+        StandardServiceRegistry registry = database.registry()
+            .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, BOOKS_PER_TRANSACTION)
+            .applySetting(AvailableSettings.ORDER_INSERTS, true)
+            .applySetting(PooledLoSequenceGenerator.ALLOCATION_SIZE_SETTING, allocationSize)
+            .build();
+
+        sessionFactory = new MetadataSources(registry).addAnnotatedClass(Book.class).buildMetadata().buildSessionFactory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        database.drop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS_PER_TRANSACTION)
+    public void insertBooks() {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+
+            for(int i = 0; i < BOOKS_PER_TRANSACTION; i++) {
+                String isbn = ISBN_PREFIX + isbns.incrementAndGet();
+                session.persist(new Book("Author", "image.png", "Title " + isbn, "-", "Publisher", "2000", 100, isbn, "Fiction"));
+            }
+
+            session.getTransaction().commit();
+        }
+    }
+
+}
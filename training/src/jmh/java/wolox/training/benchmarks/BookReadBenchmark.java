@@ -0,0 +1,161 @@
+package wolox.training.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import wolox.training.models.Book;
+
+/**
+ * Book reads by id, by ISBN and by publisher with Hibernate's second-level, natural id and query caches off
+ * and on. Each read runs in its own session, as a request would. The {@code statements} counter reports the
+ * SQL statements sent per read, i.e. the database round trips the caches saved.
+ * Needs a PostgreSQL database, see {@link BenchmarkDatabase}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookReadBenchmark {
+
+    private static final int BOOKS = 1000;
+
+    private static final int PUBLISHERS = 20;
+
+    private static final String ISBN_PREFIX = "bench-read-";
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private BenchmarkDatabase database;
+
+    private SessionFactory sessionFactory;
+
+    private Long firstId;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.migrate();
+
+        StandardServiceRegistry registry = database.registry()
+            .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, 50)
+            .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, cached)
+            .applySetting(AvailableSettings.USE_QUERY_CACHE, cached)
+            .applySetting(AvailableSettings.CACHE_REGION_FACTORY, "jcache")
+            .applySetting("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider")
+            .applySetting("hibernate.javax.cache.uri", "ehcache.xml")
+            .applySetting(AvailableSettings.GENERATE_STATISTICS, true)
+            .build();
+
+        sessionFactory = new MetadataSources(registry).addAnnotatedClass(Book.class).buildMetadata().buildSessionFactory();
+
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+
+            for(int i = 0; i < BOOKS; i++) {
+                Book book = new Book("Author", "image.png", "Title " + i, "-", "Publisher " + (i % PUBLISHERS), "2000", 100,
+                    ISBN_PREFIX + i, "Fiction");
+                session.persist(book);
+
+                if(i == 0) {
+                    firstId = book.getId();
+                }
+            }
+
+            session.getTransaction().commit();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        database.drop();
+    }
+
+    @Benchmark
+    public Book findById(RoundTrips roundTrips) {
+        long before = statistics().getPrepareStatementCount();
+
+        try (Session session = sessionFactory.openSession()) {
+            // ids come in pooled blocks, the books of one setup are not always contiguous
+            Book book = session.get(Book.class, firstId + ThreadLocalRandom.current().nextInt(BOOKS));
+
+            roundTrips.count(before, statistics());
+            return book;
+        }
+    }
+
+    @Benchmark
+    public Book findByIsbn(RoundTrips roundTrips) {
+        long before = statistics().getPrepareStatementCount();
+
+        try (Session session = sessionFactory.openSession()) {
+            Book book = session.bySimpleNaturalId(Book.class).load(ISBN_PREFIX + ThreadLocalRandom.current().nextInt(BOOKS));
+
+            roundTrips.count(before, statistics());
+            return book;
+        }
+    }
+
+    @Benchmark
+    public List<Book> findByPublisher(RoundTrips roundTrips) {
+        long before = statistics().getPrepareStatementCount();
+
+        try (Session session = sessionFactory.openSession()) {
+            List<Book> books = session.createQuery("SELECT b FROM Book b WHERE b.publisher = :publisher", Book.class)
+                .setParameter("publisher", "Publisher " + ThreadLocalRandom.current().nextInt(PUBLISHERS))
+                .setCacheable(true)
+                .setCacheRegion("book-filters")
+                .getResultList();
+
+            roundTrips.count(before, statistics());
+            return books;
+        }
+    }
+
+    //region private methods
+    private Statistics statistics() {
+        return sessionFactory.getStatistics();
+    }
+    //endregion
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+
+        public long statements;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+        }
+
+        private void count(long before, Statistics statistics) {
+            statements += statistics.getPrepareStatementCount() - before;
+        }
+
+    }
+
+}
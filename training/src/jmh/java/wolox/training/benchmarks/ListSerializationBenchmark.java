@@ -0,0 +1,131 @@
+package wolox.training.benchmarks;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wolox.training.models.Book;
+import wolox.training.models.User;
+import wolox.training.models.Views;
+
+/**
+ * Cost of writing one page of the book and user listings: the full JSON against the summary view, as is
+ * and gzipped the way the server compresses it. The {@code bytes} counter reports the size of the body
+ * sent for one page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListSerializationBenchmark {
+
+    private static final int BOOKS_PER_USER = 5;
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    @Param({"full", "summary"})
+    private String view;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectWriter writer;
+
+    private List<Book> books;
+
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        // as configured by Spring Boot, so a view leaves out every property not marked with it
+        ObjectMapper objectMapper = new ObjectMapper().disable(MapperFeature.DEFAULT_VIEW_INCLUSION);
+        writer = view.equals("summary") ? objectMapper.writerWithView(Views.Summary.class) : objectMapper.writer();
+
+        books = new ArrayList<>();
+        for(int i = 0; i < pageSize; i++) {
+            books.add(book(i));
+        }
+
+        users = new ArrayList<>();
+        for(int i = 0; i < pageSize; i++) {
+            User user = new User("Name " + i, "user" + i, LocalDate.of(1990, 5, 9),
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoO5N8K1y0v5eFvPp1fR0m3tY8lD1uJ1bW");
+            List<Book> library = new ArrayList<>();
+            for(int j = 0; j < BOOKS_PER_USER; j++) {
+                library.add(book(i * BOOKS_PER_USER + j));
+            }
+            user.setBooks(library);
+            users.add(user);
+        }
+    }
+
+    @Benchmark
+    public byte[] bookPage(Payload payload) throws IOException {
+        return payload.record(write(books));
+    }
+
+    @Benchmark
+    public byte[] userPage(Payload payload) throws IOException {
+        return payload.record(write(users));
+    }
+
+    //region private methods
+    private byte[] write(Object page) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try (OutputStream out = gzip ? new GZIPOutputStream(body) : body) {
+            writer.writeValue(out, page);
+        }
+
+        return body.toByteArray();
+    }
+
+    private Book book(int i) {
+        return new Book("J. K. Rowling", "https://covers.openlibrary.org/b/id/" + (240000 + i) + "-M.jpg",
+            "Harry Potter, volume " + i, "A novel", "Bloomsbury Publishing", "1997", 223, String.format("97807475%05d", i),
+            "Fantasy");
+    }
+    //endregion
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+        private byte[] record(byte[] body) {
+            bytes = body.length;
+            return body;
+        }
+
+    }
+
+}
@@ -0,0 +1,122 @@
+package wolox.training.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wolox.training.models.BookDTO;
+import wolox.training.services.OpenLibraryResponseParser;
+
+/**
+ * Cost of turning a recorded OpenLibrary response into {@link BookDTO}s: the previous path, which read the
+ * body line by line into a {@code StringBuffer} and walked an org.json tree, against
+ * {@link OpenLibraryResponseParser}. Run with {@code -prof gc} to compare allocation per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenLibraryParsingBenchmark {
+
+    @Param({"single-book.json", "fifty-books.json"})
+    private String payload;
+
+    private byte[] body;
+    private OpenLibraryResponseParser responseParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream is = getClass().getResourceAsStream("/openlibrary/" + payload)) {
+            body = ByteStreams.toByteArray(is);
+        }
+
+        responseParser = new OpenLibraryResponseParser(new JsonFactory());
+    }
+
+    @Benchmark
+    public Map<String, BookDTO> stringBufferAndJsonObject() throws IOException {
+        JSONObject jo = new JSONObject(readLines(new ByteArrayInputStream(body)));
+        Map<String, BookDTO> bookDTOs = new HashMap<>();
+
+        Iterator<String> bibkeys = jo.keys();
+        while(bibkeys.hasNext()) {
+            String bibkey = bibkeys.next();
+            String isbn = bibkey.substring("ISBN:".length());
+            bookDTOs.put(isbn, createBookDTO(jo.getJSONObject(bibkey), isbn));
+        }
+
+        return bookDTOs;
+    }
+
+    @Benchmark
+    public Map<String, BookDTO> streamingParser() throws IOException {
+        return responseParser.parse(new ByteArrayInputStream(body));
+    }
+
+    //region previous OpenLibraryService parsing
+    private static String readLines(InputStream is) throws IOException {
+        String line;
+        BufferedReader br = new BufferedReader(new InputStreamReader(is));
+        StringBuffer response = new StringBuffer();
+
+        while((line = br.readLine()) != null) {
+            response.append(line);
+        }
+
+        br.close();
+
+        return response.toString();
+    }
+
+    private static BookDTO createBookDTO(JSONObject jo, String isbn) {
+        BookDTO bookDTO = new BookDTO();
+
+        bookDTO.setISBN(isbn);
+        bookDTO.setTitle(jo.optString("title", null));
+        bookDTO.setSubtitle(jo.optString("subtitle", null));
+        bookDTO.setPublishers(namesList(jo.optJSONArray("publishers")));
+        bookDTO.setNumberOfPages(jo.optInt("number_of_pages"));
+        bookDTO.setPublishDate(jo.optString("publish_date", null));
+        bookDTO.setAuthors(namesList(jo.optJSONArray("authors")));
+
+        JSONObject cover = jo.optJSONObject("cover");
+        bookDTO.setImage(cover != null ? cover.optString("small", null) : null);
+
+        return bookDTO;
+    }
+
+    private static List<String> namesList(JSONArray jsonArray) {
+        List<String> list = new ArrayList<>();
+        for(int i = 0; jsonArray != null && i < jsonArray.length(); i++) {
+            list.add(jsonArray.getJSONObject(i).optString("name"));
+        }
+
+        return list;
+    }
+    //endregion
+
+}
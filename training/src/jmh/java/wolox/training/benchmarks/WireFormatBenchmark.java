@@ -0,0 +1,108 @@
+package wolox.training.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import wolox.training.models.Book;
+
+/**
+ * Encoding and decoding a page of books as JSON, CBOR and Smile, the formats the API negotiates through
+ * the Accept and Content-Type headers. The {@code bytes} counter reports the size of the encoded page.
+ * Run with {@code -prof gc} to compare allocation as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<Book>> BOOK_LIST = new TypeReference<List<Book>>() { };
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+
+    private List<Book> books;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper(factory()).disable(MapperFeature.DEFAULT_VIEW_INCLUSION);
+
+        books = new ArrayList<>();
+        for(int i = 0; i < pageSize; i++) {
+            books.add(new Book("J. K. Rowling", "https://covers.openlibrary.org/b/id/" + (240000 + i) + "-M.jpg",
+                "Harry Potter, volume " + i, "A novel", "Bloomsbury Publishing", "1997", 223,
+                String.format("97807475%05d", i), "Fantasy"));
+        }
+
+        encoded = objectMapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] encode(Payload payload) throws IOException {
+        byte[] body = objectMapper.writeValueAsBytes(books);
+        payload.bytes = body.length;
+
+        return body;
+    }
+
+    @Benchmark
+    public List<Book> decode() throws IOException {
+        return objectMapper.readValue(encoded, BOOK_LIST);
+    }
+
+    //region private methods
+    private JsonFactory factory() {
+        switch(format) {
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+    //endregion
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+package wolox.training.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the hit ratio of Hibernate's entity, natural id and query caches as
+ * {@code hibernate.cache.hit.ratio}, next to the raw hit and miss counters Spring Boot already binds.
+ * Needs {@code hibernate.generate_statistics}; without it every ratio reads 0.
+ */
+@Component
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        register(registry, statistics, "entity",
+            s -> ratio(s.getSecondLevelCacheHitCount(), s.getSecondLevelCacheMissCount()));
+        register(registry, statistics, "natural-id",
+            s -> ratio(s.getNaturalIdCacheHitCount(), s.getNaturalIdCacheMissCount()));
+        register(registry, statistics, "query",
+            s -> ratio(s.getQueryCacheHitCount(), s.getQueryCacheMissCount()));
+    }
+
+    //region private methods
+    private void register(MeterRegistry registry, Statistics statistics, String cache, ToDoubleFunction<Statistics> ratio) {
+        Gauge.builder("hibernate.cache.hit.ratio", statistics, ratio)
+            .tag("cache", cache)
+            .description("Share of lookups answered by the cache since startup")
+            .register(registry);
+    }
+
+    private double ratio(long hits, long misses) {
+        long lookups = hits + misses;
+
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+    //endregion
+
+}
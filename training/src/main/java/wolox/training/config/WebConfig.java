@@ -0,0 +1,82 @@
+package wolox.training.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // a fresh builder per injection point, already carrying the spring.jackson.* settings
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    /**
+     * ETags for the list endpoints, hashed from the rendered page. A poll that sees the same page still runs
+     * its query but gets a 304 instead of the whole body. Limited to these paths because the filter buffers
+     * the response, which would defeat the streaming exports and imports. The ETags are weak: Tomcat does not
+     * compress a response carrying a strong one, as gzip changes the bytes it vouches for.
+     */
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> listEtagFilter() {
+        ShallowEtagHeaderFilter filter = new ShallowEtagHeaderFilter();
+        filter.setWriteWeakETag(true);
+
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/books/", "/api/books/seek", "/api/books/search",
+            "/api/books/byPublisherAndByGenreAndByYear", "/api/users/", "/api/users/seek",
+            "/api/users/birthdateBetweenAndNameContains");
+
+        return registration;
+    }
+
+    /**
+     * Every API response depends on the Accept header, which picks JSON, CBOR or Smile, so shared caches must
+     * not hand one format to a client that asked for another. Added before the handler runs so that 304s
+     * carry it as well.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+
+        }).addPathPatterns("/api/**");
+    }
+
+    /**
+     * Lets clients ask for CBOR ({@code application/cbor}) or Smile ({@code application/x-jackson-smile})
+     * instead of JSON, in requests and responses alike. Both are binary encodings of the same Jackson
+     * model, so the views and annotations of the models apply unchanged. Spring MVC already registers
+     * converters for them, but with mappers that ignore the application's Jackson settings; they are
+     * replaced and kept after JSON, which stays the answer to a wildcard Accept header.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+            || converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+        converters.add(new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.factory(new SmileFactory()).build()));
+    }
+
+}
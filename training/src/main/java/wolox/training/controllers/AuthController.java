@@ -0,0 +1,46 @@
+package wolox.training.controllers;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import wolox.training.exceptions.InvalidCredentialsException;
+import wolox.training.models.AuthToken;
+import wolox.training.security.CustomAuthenticationProvider;
+import wolox.training.security.TokenService;
+
+@RequestMapping("/api/auth")
+@RestController
+public class AuthController {
+
+    @Autowired
+    CustomAuthenticationProvider authenticationProvider;
+
+    @Autowired
+    TokenService tokenService;
+
+    @PostMapping("/login")
+    public AuthToken login(@RequestBody String stringParams) throws InvalidCredentialsException, JSONException {
+        JSONObject params = new JSONObject(stringParams);
+
+        String username = params.getString("username");
+        String password = params.getString("password");
+
+        Authentication authentication;
+
+        try {
+            authentication = authenticationProvider.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+        } catch (AuthenticationException ex) {
+            throw new InvalidCredentialsException(ex.getMessage(), ex);
+        }
+
+        return tokenService.issue(authentication.getName());
+    }
+
+}
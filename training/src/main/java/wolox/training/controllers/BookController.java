@@ -1,16 +1,32 @@
 package wolox.training.controllers;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
-import org.json.JSONException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,30 +34,72 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import wolox.training.exceptions.BookIdMismatchException;
+import wolox.training.exceptions.BookIsbnMismatchException;
+import wolox.training.exceptions.BookLookupRejectedException;
 import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.BookUpdateConflictException;
 import wolox.training.exceptions.ConnectionFailedException;
+import wolox.training.exceptions.InvalidCursorException;
 import wolox.training.exceptions.UnableToCreateBookFromDTOException;
 import wolox.training.exceptions.UnableToReadBookFromAPIException;
 import wolox.training.exceptions.NullAttributesException;
+import wolox.training.exceptions.PreconditionFailedException;
+import wolox.training.exceptions.TooManyIsbnsException;
 import wolox.training.models.Book;
+import wolox.training.models.BulkItemResult;
+import wolox.training.models.BulkItemResult.Status;
+import wolox.training.models.CursorPage;
 import wolox.training.repositories.BookRepository;
-import wolox.training.services.OpenLibraryService;
+import wolox.training.repositories.BookSpecifications;
+import wolox.training.services.BookExportService;
+import wolox.training.services.BookImportService;
+import wolox.training.services.BookUploadService;
+import wolox.training.services.BulkProcessor;
+import wolox.training.services.CatalogFormat;
+import wolox.training.services.BookSearchEngine;
 
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final String CSV_VALUE = "text/csv";
+
+    private static final int MAX_SEEK_SIZE = 100;
+
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     @Autowired
     BookRepository bookRepository;
 
     @Autowired
-    OpenLibraryService openLibraryService;
+    BookImportService bookImportService;
+
+    @Autowired
+    BookSearchEngine bookSearchEngine;
+
+    @Autowired
+    BulkProcessor bulkProcessor;
+
+    @Autowired
+    BookExportService bookExportService;
+
+    @Autowired
+    BookUploadService bookUploadService;
+
+    @Autowired
+    ObjectMapper objectMapper;
 
     @GetMapping("/greeting")
     public String greeting(@RequestParam(name="name", required=false, defaultValue="World") String name, Model model){
@@ -50,61 +108,264 @@ public class BookController {
         return "greeting";
     }
 
+    /**
+     * With {@code view=summary} each book only carries its id, title, author, genre and ISBN.
+     */
     @GetMapping("/")
-    public List<Book> findAll(@RequestParam(name="author", required=false) String author, @RequestParam(name="genre", required=false) String genre,
+    public MappingJacksonValue findAll(@RequestParam(name="author", required=false) String author, @RequestParam(name="genre", required=false) String genre,
+        @RequestParam(name="image", required=false) String image, @RequestParam(name="title", required=false) String title, @RequestParam(name="subtitle", required=false) String subtitle,
+        @RequestParam(name="publisher", required=false) String publisher, @RequestParam(name="year", required=false) String year, @RequestParam(name="pages", required=false) Integer pages,
+        @RequestParam(name="isbn", required=false) String isbn, @RequestParam(name="view", required=false) String view,
+        Pageable pageable){
+
+        return JsonViews.withView(bookRepository.findAll(author, genre, image, title, subtitle, publisher, year, pages, isbn,
+            pageable), view);
+    }
+
+    /**
+     * Keyset paginated variant of {@link #findAll}: pass the returned {@code nextCursor} as {@code cursor} to get the
+     * next page. Unlike offset paging, every page costs the same and no count query is run.
+     */
+    @GetMapping("/seek")
+    public CursorPage<Book> seek(@RequestParam(name="author", required=false) String author, @RequestParam(name="genre", required=false) String genre,
         @RequestParam(name="image", required=false) String image, @RequestParam(name="title", required=false) String title, @RequestParam(name="subtitle", required=false) String subtitle,
         @RequestParam(name="publisher", required=false) String publisher, @RequestParam(name="year", required=false) String year, @RequestParam(name="pages", required=false) Integer pages,
-        @RequestParam(name="isbn", required=false) String isbn, Pageable pageable){
+        @RequestParam(name="isbn", required=false) String isbn, @RequestParam(name="sort", defaultValue="id") String sort,
+        @RequestParam(name="direction", defaultValue="asc") String direction, @RequestParam(name="cursor", required=false) String cursor,
+        @RequestParam(name="size", defaultValue="20") int size) throws InvalidCursorException {
+
+        return bookRepository.seek(BookSpecifications.matching(author, genre, image, title, subtitle, publisher, year, pages, isbn),
+            sort, toDirection(direction), cursor, Math.max(1, Math.min(size, MAX_SEEK_SIZE)));
+    }
 
-        return bookRepository.findAll(author, genre, image, title, subtitle, publisher, year, pages, isbn, pageable);
+    /**
+     * Ranked full-text search over title, subtitle, author and publisher. Words match by prefix and tolerate typos.
+     * @param query
+     * @param limit
+     * @return the best matching books first
+     */
+    @GetMapping("/search")
+    public List<Book> search(@RequestParam(name="q") String query, @RequestParam(name="limit", defaultValue="20") int limit) {
+        if(query.trim().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty search query");
+        }
+
+        return bookSearchEngine.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT)));
     }
 
+    /**
+     * Streams the whole catalog ordered by id, as newline delimited JSON or CSV.
+     * @param format ndjson or csv
+     * @return the export, written while the books are read
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(name="format", defaultValue="ndjson") String format) {
+        CatalogFormat exportFormat = toFormat(format);
+        StreamingResponseBody body = outputStream -> bookExportService.export(exportFormat, outputStream);
+
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books." + exportFormat.name().toLowerCase() + "\"")
+            .body(body);
+    }
+
+    /**
+     * Answers 304 when the client's If-None-Match still names the current version, without loading the book.
+     * @param id
+     * @param request
+     * @return the book, with its ETag
+     */
     @GetMapping("/{id}")
-    public Book findOne(@PathVariable Long id) throws BookNotFoundException {
-        return bookRepository.findById(id).orElseThrow(BookNotFoundException::new);
+    public ResponseEntity<Book> findOne(@PathVariable Long id, WebRequest request) throws BookNotFoundException {
+        Long version = bookRepository.findVersionById(id).orElseThrow(BookNotFoundException::new);
+
+        if(request.checkNotModified(ETags.of(id, version, request))) {
+            return null;
+        }
+
+        Book book = bookRepository.findById(id).orElseThrow(BookNotFoundException::new);
+
+        return ResponseEntity.ok().eTag(ETags.of(id, book.getVersion(), request)).body(book);
     }
 
     @GetMapping("/isbn/{isbn}")
     public ResponseEntity<Book> findByIsbn(@PathVariable String isbn)
-        throws IOException, JSONException, ConnectionFailedException, BookNotFoundException, NullAttributesException, UnableToReadBookFromAPIException, UnableToCreateBookFromDTOException {
+        throws IOException, ConnectionFailedException, BookNotFoundException, NullAttributesException, UnableToReadBookFromAPIException, UnableToCreateBookFromDTOException {
 
         try{
             return new ResponseEntity<>(bookRepository.findByIsbn(isbn).orElseThrow(BookNotFoundException::new),HttpStatus.OK);
         } catch (BookNotFoundException ex){
-            Book newBook = new Book(openLibraryService.bookInfo(isbn));
-            return new ResponseEntity<>(this.create(newBook), HttpStatus.CREATED);
+            return new ResponseEntity<>(bookImportService.importByIsbn(isbn), HttpStatus.CREATED);
         }
     }
 
+    /**
+     * Non-blocking variant of {@link #findByIsbn(String)}: the request thread is released while OpenLibrary
+     * is queried, and the request fails fast with 503 when too many lookups are already pending.
+     * @param isbn
+     * @return the stored book, or the imported one with 201
+     */
+    @GetMapping("/isbn/{isbn}/async")
+    public CompletableFuture<ResponseEntity<Book>> findByIsbnAsync(@PathVariable String isbn) throws BookLookupRejectedException {
+        Optional<Book> book = bookRepository.findByIsbn(isbn);
+
+        if(book.isPresent()) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(book.get(), HttpStatus.OK));
+        }
+
+        return bookImportService.importByIsbnAsync(isbn).thenApply(imported -> new ResponseEntity<>(imported, HttpStatus.CREATED));
+    }
+
+    /**
+     * Imports a list of ISBNs from OpenLibrary, streaming one JSON line per ISBN as its outcome is known.
+     * @param isbns
+     * @return newline delimited {@link wolox.training.models.IsbnImportResult}s
+     */
+    @PostMapping(value = "/import", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importAll(@RequestBody List<String> isbns) throws TooManyIsbnsException {
+        bookImportService.checkImportSize(isbns);
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                bookImportService.importAll(isbns, result -> writeLine(outputStream, result));
+            } catch (TooManyIsbnsException ex) {
+                throw new IllegalStateException(ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while importing books", ex);
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
+    /**
+     * Loads a CSV or newline delimited JSON catalog, streaming a JSON line for every row that could not be
+     * inserted and the running totals after every batch. The last line carries the final totals.
+     * @param contentType
+     * @param body
+     * @return newline delimited {@link BulkItemResult}s and {@link wolox.training.models.UploadProgress}es
+     */
+    @PostMapping(value = "/upload", consumes = {CSV_VALUE, APPLICATION_NDJSON_VALUE}, produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> upload(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+        InputStream body) {
+
+        CatalogFormat format = contentType.isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))
+            ? CatalogFormat.CSV : CatalogFormat.NDJSON;
+
+        StreamingResponseBody responseBody = outputStream -> {
+            try {
+                bookUploadService.upload(format, body, result -> writeLine(outputStream, result),
+                    progress -> writeLine(outputStream, progress));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(responseBody);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Book create(@RequestBody Book book) throws NullAttributesException {
         if(book.anyRequiredAttributeNull()){
             throw new NullAttributesException();
         }
-        return bookRepository.save(book);
+
+        Book saved = bookRepository.save(book);
+        bookSearchEngine.index(saved);
+
+        return saved;
     }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) throws BookNotFoundException {
         bookRepository.findById(id).orElseThrow(BookNotFoundException::new);
         bookRepository.deleteById(id);
+        bookSearchEngine.remove(id);
     }
 
+    /**
+     * Applies the received attributes to the stored book. The ISBN identifies the book and cannot change, a
+     * body carrying another one answers 409. With an If-Match header the update only goes through if the
+     * book is still at that version, checked again by the versioned UPDATE itself. Without it, losing that
+     * check against a concurrent update answers 409 instead.
+     * @param book
+     * @param id
+     * @param ifMatch
+     * @param request
+     * @return the updated book, with its new ETag
+     */
     @PutMapping("/{id}")
-    public Book updateBook(@RequestBody Book book, @PathVariable Long id) throws BookNotFoundException, BookIdMismatchException, NullAttributesException {
+    public ResponseEntity<Book> updateBook(@RequestBody Book book, @PathVariable Long id,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch, WebRequest request)
+        throws BookNotFoundException, BookIdMismatchException, NullAttributesException, PreconditionFailedException,
+        BookUpdateConflictException, BookIsbnMismatchException {
 
         if (!id.equals(book.getId())){
             throw new BookIdMismatchException();
         }
 
-        bookRepository.findById(id).orElseThrow(BookNotFoundException::new);
+        Book stored = bookRepository.findById(id).orElseThrow(BookNotFoundException::new);
 
         if(book.anyRequiredAttributeNull()){
             throw new NullAttributesException();
         }
 
-        return bookRepository.save(book);
+        ETags.checkIfMatch(ifMatch, ETags.of(id, stored.getVersion()));
+
+        if(!stored.getIsbn().equals(book.getIsbn())) {
+            throw new BookIsbnMismatchException();
+        }
+
+        stored.updateFrom(book);
+
+        Book saved;
+
+        try {
+            saved = bookRepository.save(stored);
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            if(ifMatch == null) {
+                throw new BookUpdateConflictException(ex.getMessage(), ex);
+            }
+            throw new PreconditionFailedException(ex.getMessage(), ex);
+        }
+
+        bookSearchEngine.index(saved);
+
+        return ResponseEntity.ok().eTag(ETags.of(id, saved.getVersion(), request)).body(saved);
+    }
+
+    /**
+     * Creates every book of a JSON array or newline delimited JSON body, in batches. Ids in the body are ignored.
+     * @param body
+     * @return one result per book, with the id it was given
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public List<BulkItemResult> createAll(InputStream body) throws IOException {
+        return bulkProcessor.process(objectMapper.readerFor(Book.class).readValues(body), this::createChunk);
+    }
+
+    /**
+     * Updates every book of a JSON array or newline delimited JSON body, in batches. Books are matched by id.
+     * @param body
+     * @return one result per book
+     */
+    @PutMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public List<BulkItemResult> updateAll(InputStream body) throws IOException {
+        return bulkProcessor.process(objectMapper.readerFor(Book.class).readValues(body), this::updateChunk);
+    }
+
+    /**
+     * Deletes every book whose id is listed in a JSON array or newline delimited JSON body, in batches.
+     * @param body
+     * @return one result per id
+     */
+    @DeleteMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public List<BulkItemResult> deleteAll(InputStream body) throws IOException {
+        return bulkProcessor.process(objectMapper.readerFor(Long.class).readValues(body), this::deleteChunk);
     }
 
     @GetMapping("/byPublisherAndByGenreAndByYear")
@@ -113,5 +374,103 @@ public class BookController {
 
         return bookRepository.findByPublisherAndGenreAndYear(publisher, genre, year, pageable);
     }
-}
 
+    //region private methods
+    private Direction toDirection(String direction) {
+        try {
+            return Direction.fromString(direction);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid direction", ex);
+        }
+    }
+
+    private List<BulkItemResult> createChunk(List<Book> books) {
+        List<BulkItemResult> results = new ArrayList<>();
+
+        for(Book received : books) {
+            if(received.anyRequiredAttributeNull()) {
+                results.add(BulkItemResult.failed(Status.INVALID, null, "Missing attributes"));
+                continue;
+            }
+
+            Book book = new Book();
+            book.updateFrom(received);
+            book.setIsbn(received.getIsbn());
+            bookRepository.save(book);
+            BulkProcessor.afterCommit(() -> bookSearchEngine.index(book));
+
+            results.add(BulkItemResult.of(Status.CREATED, book.getId()));
+        }
+
+        return results;
+    }
+
+    private List<BulkItemResult> updateChunk(List<Book> books) {
+        Map<Long, Book> stored = findStoredById(books.stream().map(Book::getId).filter(Objects::nonNull).collect(Collectors.toList()));
+        List<BulkItemResult> results = new ArrayList<>();
+
+        for(Book received : books) {
+            Book book = received.getId() != null ? stored.get(received.getId()) : null;
+
+            if(received.getId() == null || received.anyRequiredAttributeNull()) {
+                results.add(BulkItemResult.failed(Status.INVALID, received.getId(), "Missing attributes"));
+            } else if(book == null) {
+                results.add(BulkItemResult.failed(Status.NOT_FOUND, received.getId(), null));
+            } else if(!book.getIsbn().equals(received.getIsbn())) {
+                results.add(BulkItemResult.failed(Status.INVALID, received.getId(), "The ISBN cannot be changed"));
+            } else {
+                // dirty checking turns the changes into batched updates on flush
+                book.updateFrom(received);
+                BulkProcessor.afterCommit(() -> bookSearchEngine.index(book));
+
+                results.add(BulkItemResult.of(Status.UPDATED, book.getId()));
+            }
+        }
+
+        return results;
+    }
+
+    private List<BulkItemResult> deleteChunk(List<Long> ids) {
+        Map<Long, Book> stored = findStoredById(ids.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+        List<BulkItemResult> results = new ArrayList<>();
+
+        for(Long id : ids) {
+            Book book = id != null ? stored.get(id) : null;
+
+            if(book == null) {
+                results.add(BulkItemResult.failed(Status.NOT_FOUND, id, null));
+            } else {
+                results.add(BulkItemResult.of(Status.DELETED, id));
+                BulkProcessor.afterCommit(() -> bookSearchEngine.remove(id));
+            }
+        }
+
+        bookRepository.deleteAll(stored.values());
+
+        return results;
+    }
+
+    private Map<Long, Book> findStoredById(List<Long> ids) {
+        return StreamSupport.stream(bookRepository.findAllById(ids).spliterator(), false)
+            .collect(Collectors.toMap(Book::getId, Function.identity()));
+    }
+
+    private CatalogFormat toFormat(String format) {
+        try {
+            return CatalogFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid export format", ex);
+        }
+    }
+
+    private void writeLine(OutputStream outputStream, Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+            outputStream.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    //endregion
+}
@@ -0,0 +1,94 @@
+package wolox.training.controllers;
+
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.WebRequest;
+import wolox.training.exceptions.PreconditionFailedException;
+
+/**
+ * Strong ETags of single resources, built from the resource id and a version that changes with every write.
+ * A strong ETag vouches for the exact bytes, so the same version sent as CBOR or Smile gets the subtype
+ * appended ({@code "1-3+cbor"}); JSON keeps the bare tag.
+ */
+final class ETags {
+
+    private static final List<MediaType> FORMATS = Arrays.asList(MediaType.APPLICATION_JSON,
+        MediaType.parseMediaType("application/cbor"), MediaType.parseMediaType("application/x-jackson-smile"));
+
+    private ETags() {
+
+    }
+
+    static String of(Long id, Object version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * @param id the resource id
+     * @param version the resource version
+     * @param request the request whose Accept header picks the format of the body
+     * @return the ETag of the resource in the format the request negotiates
+     */
+    static String of(Long id, Object version, WebRequest request) {
+        MediaType format = format(request.getHeader(HttpHeaders.ACCEPT));
+
+        if(format.equals(MediaType.APPLICATION_JSON)) {
+            return of(id, version);
+        }
+
+        return "\"" + id + "-" + version + "+" + format.getSubtype() + "\"";
+    }
+
+    /**
+     * The tags of every format name the same version, so the format suffix is left out of the comparison.
+     * @param ifMatch the request's If-Match header, null when the request is unconditional
+     * @param eTag the current ETag of the resource
+     * @throws PreconditionFailedException when the header is present and names neither the current ETag nor *
+     */
+    static void checkIfMatch(String ifMatch, String eTag) throws PreconditionFailedException {
+        if(ifMatch == null || ifMatch.trim().equals("*")) {
+            return;
+        }
+
+        if(Arrays.stream(ifMatch.split(",")).map(String::trim).map(ETags::withoutFormat).noneMatch(eTag::equals)) {
+            throw new PreconditionFailedException();
+        }
+    }
+
+    //region private methods
+    /**
+     * Mirrors the choice of the message converters: the most specific and preferred accepted type wins, and
+     * a wildcard settles on JSON, which is registered first.
+     */
+    private static MediaType format(String accept) {
+        if(accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+
+        List<MediaType> accepted;
+
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return MediaType.APPLICATION_JSON;
+        }
+
+        MediaType.sortBySpecificityAndQuality(accepted);
+
+        return accepted.stream()
+            .flatMap(type -> FORMATS.stream().filter(type::includes))
+            .findFirst()
+            .orElse(MediaType.APPLICATION_JSON);
+    }
+
+    private static String withoutFormat(String eTag) {
+        int format = eTag.lastIndexOf('+');
+
+        return format < 0 ? eTag : eTag.substring(0, format) + "\"";
+    }
+    //endregion
+
+}
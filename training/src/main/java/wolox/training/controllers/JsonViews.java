@@ -0,0 +1,38 @@
+package wolox.training.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.web.server.ResponseStatusException;
+import wolox.training.models.Views;
+
+/**
+ * Resolves the {@code view} parameter of the list endpoints.
+ */
+final class JsonViews {
+
+    private JsonViews() {
+
+    }
+
+    /**
+     * @param body
+     * @param view {@code summary}, or null or {@code full} for every property
+     * @return the body, to be written with the requested view
+     * @throws ResponseStatusException with 400 for any other view
+     */
+    static MappingJacksonValue withView(Object body, String view) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+
+        if(view == null || view.equals("full")) {
+            return value;
+        }
+
+        if(view.equals("summary")) {
+            value.setSerializationView(Views.Summary.class);
+            return value;
+        }
+
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown view " + view);
+    }
+
+}
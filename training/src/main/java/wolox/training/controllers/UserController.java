@@ -1,47 +1,105 @@
 package wolox.training.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import wolox.training.exceptions.BookAlreadyOwnedException;
 import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.InvalidCursorException;
 import wolox.training.exceptions.NullAttributesException;
 import wolox.training.exceptions.OldPasswordMismatchException;
+import wolox.training.exceptions.PasswordHashingUnavailableException;
+import wolox.training.exceptions.PreconditionFailedException;
 import wolox.training.exceptions.UserIdMismatchException;
 import wolox.training.exceptions.UserNotFoundException;
+import wolox.training.exceptions.UserUpdateConflictException;
+import wolox.training.exceptions.UsernameTakenException;
 import wolox.training.models.Book;
+import wolox.training.models.BulkItemResult;
+import wolox.training.models.BulkItemResult.Status;
+import wolox.training.models.CursorPage;
 import wolox.training.models.User;
 import wolox.training.repositories.BookRepository;
 import wolox.training.repositories.UserRepository;
+import wolox.training.security.AuthenticationCache;
+import wolox.training.security.TokenService;
+import wolox.training.services.BulkProcessor;
+import wolox.training.services.PasswordHashingService;
 
 @RequestMapping("/api/users")
 @RestController
 public class UserController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int MAX_SEEK_SIZE = 100;
+
     @Autowired
     UserRepository userRepository;
 
     @Autowired
     BookRepository bookRepository;
 
+    @Autowired
+    AuthenticationCache authenticationCache;
+
+    @Autowired
+    TokenService tokenService;
+
+    @Autowired
+    PasswordHashingService passwordHashingService;
+
+    @Autowired
+    BulkProcessor bulkProcessor;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${library.max-attempts:10}")
+    private int libraryMaxAttempts;
+
+    @Value("${library.backoff-ms:10}")
+    private long libraryBackoffMs;
+
     @GetMapping("/username")
     public User currentUserName(Authentication authentication) throws UserNotFoundException {
         User user = userRepository.findFirstByUsername(authentication.getName());
@@ -49,25 +107,77 @@ public class UserController {
         return user;
     }
 
+    /**
+     * With {@code view=summary} each user only carries its id, name and username, and not its books.
+     */
     @GetMapping("/")
-    public List<User> findAll (Pageable pageable){
+    public MappingJacksonValue findAll(@RequestParam(name="view", required=false) String view, Pageable pageable){
 
-        return userRepository.findAllUsers(pageable);
+        return JsonViews.withView(userRepository.findAllUsers(pageable), view);
     }
 
+    /**
+     * Keyset paginated variant of {@link #findAll(String, Pageable)}: pass the returned {@code nextCursor} as {@code cursor}
+     * to get the next page.
+     */
+    @GetMapping("/seek")
+    public CursorPage<User> seek(@RequestParam(name="sort", defaultValue="id") String sort, @RequestParam(name="direction", defaultValue="asc") String direction,
+        @RequestParam(name="cursor", required=false) String cursor, @RequestParam(name="size", defaultValue="20") int size) throws InvalidCursorException {
+
+        Direction sortDirection;
+
+        try {
+            sortDirection = Direction.fromString(direction);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid direction", ex);
+        }
+
+        return userRepository.seek(sort, sortDirection, cursor, Math.max(1, Math.min(size, MAX_SEEK_SIZE)));
+    }
+
+    /**
+     * Answers 304 when the client's If-None-Match still names the current version of the user and its
+     * books, without loading them.
+     * @param id
+     * @param request
+     * @return the user, with its ETag
+     */
     @GetMapping("/{id}")
-    public User findOne(@PathVariable Long id) throws UserNotFoundException {
-        return userRepository.findById(id).orElseThrow(UserNotFoundException::new);
+    public ResponseEntity<User> findOne(@PathVariable Long id, WebRequest request) throws UserNotFoundException {
+        String versionTag = userRepository.findVersionTagById(id).orElseThrow(UserNotFoundException::new);
+
+        if(request.checkNotModified(ETags.of(id, versionTag, request))) {
+            return null;
+        }
+
+        User user = userRepository.findWithBooksById(id).orElseThrow(UserNotFoundException::new);
+
+        return ResponseEntity.ok().eTag(ETags.of(id, user.getVersionTag(), request)).body(user);
     }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Long id) throws UserNotFoundException{
-        userRepository.findById(id).orElseThrow(UserNotFoundException::new);
+        User user = userRepository.findById(id).orElseThrow(UserNotFoundException::new);
         userRepository.deleteById(id);
+        revokeCredentials(user.getUsername());
     }
 
+    /**
+     * With an If-Match header the update only goes through if the user is still at that version, checked
+     * again by the versioned UPDATE itself. Without it, losing that check against a concurrent update answers
+     * 409 instead.
+     * @param id
+     * @param user
+     * @param ifMatch
+     * @param request
+     * @return the updated user, with its new ETag
+     */
     @PutMapping("/{id}")
-    public User update(@PathVariable Long id, @RequestBody User user) throws UserNotFoundException, UserIdMismatchException, NullAttributesException {
+    public ResponseEntity<User> update(@PathVariable Long id, @RequestBody User user,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch, WebRequest request)
+        throws UserNotFoundException, UserIdMismatchException, NullAttributesException, PreconditionFailedException,
+        UserUpdateConflictException {
+
         if(!id.equals(user.getId())){
             throw  new UserIdMismatchException();
         }
@@ -77,26 +187,89 @@ public class UserController {
         }
 
         User userToSave = userRepository.findById(id).orElseThrow(UserNotFoundException::new);
+        ETags.checkIfMatch(ifMatch, ETags.of(id, userToSave.getVersionTag()));
+
+        String previousUsername = userToSave.getUsername();
         userToSave.setName(user.getName());
         userToSave.setUsername(user.getUsername());
         userToSave.setBirthdate(user.getBirthdate());
-        userToSave.setBooks(user.getBooks());
+        userToSave.setBooks(storedBooks(user.getBooks()));
+
+        User saved;
+
+        try {
+            saved = userRepository.save(userToSave);
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            if(ifMatch == null) {
+                throw new UserUpdateConflictException(ex.getMessage(), ex);
+            }
+            throw new PreconditionFailedException(ex.getMessage(), ex);
+        }
+
+        // only once the change is committed, a login in between would cache the old credentials again
+        BulkProcessor.afterCommit(() -> forgetCredentials(previousUsername, saved.getUsername()));
 
-        return userRepository.save(user);
+        return ResponseEntity.ok().eTag(ETags.of(id, saved.getVersionTag(), request)).body(saved);
     }
   
     @PostMapping("/")
     @ResponseStatus(HttpStatus.CREATED)
-    public User create(@RequestBody User user) throws NullAttributesException {
+    public User create(@RequestBody User user)
+        throws NullAttributesException, PasswordHashingUnavailableException, UsernameTakenException {
         if(user.anyRequiredAttributeNull()){
             throw new NullAttributesException();
         }
-        return userRepository.save(user);
+
+        if(user.getPassword()!=null){
+            user.setPassword(passwordHashingService.hash(user.getPassword()));
+        }
+
+        try {
+            return userRepository.save(user);
+        } catch (DataIntegrityViolationException ex) {
+            // uk_users_username rejected the insert, unless some other constraint did
+            if(userRepository.findFirstByUsername(user.getUsername()) != null) {
+                throw new UsernameTakenException(user.getUsername(), ex);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates every user of a JSON array or newline delimited JSON body, in batches. Books are not created
+     * along with the users, add them through {@link #addBookToLibrary}.
+     * @param body
+     * @return one result per user, with the id it was given
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public List<BulkItemResult> createAll(InputStream body) throws IOException {
+        return bulkProcessor.process(objectMapper.readerFor(User.class).readValues(body), this::hashPasswords,
+            this::createChunk);
+    }
+
+    /**
+     * Applies {@link #update} to every user of a JSON array or newline delimited JSON body, in batches.
+     * @param body
+     * @return one result per user
+     */
+    @PutMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public List<BulkItemResult> updateAll(InputStream body) throws IOException {
+        return bulkProcessor.process(objectMapper.readerFor(User.class).readValues(body), this::updateChunk);
+    }
+
+    /**
+     * Deletes every user whose id is listed in a JSON array or newline delimited JSON body, in batches.
+     * @param body
+     * @return one result per id
+     */
+    @DeleteMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public List<BulkItemResult> deleteAll(InputStream body) throws IOException {
+        return bulkProcessor.process(objectMapper.readerFor(Long.class).readValues(body), this::deleteChunk);
     }
 
     @PutMapping("/editPass/{userId}")
     public User updatePassword(@PathVariable Long userId, @RequestBody String stringParams)
-        throws UserNotFoundException, OldPasswordMismatchException, JSONException {
+        throws UserNotFoundException, OldPasswordMismatchException, JSONException, PasswordHashingUnavailableException {
         User user = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
 
         JSONObject params = new JSONObject(stringParams);
@@ -104,39 +277,83 @@ public class UserController {
         String oldPass = params.getString("oldPassword");
         String newPass = params.getString("newPassword");
 
-        if(!BCrypt.checkpw(oldPass,user.getPassword())) {
+        if(!passwordHashingService.matches(oldPass, user.getPassword())) {
             throw new OldPasswordMismatchException();
         }
 
-        user.setPassword(newPass);
+        user.setPassword(passwordHashingService.hash(newPass));
+        User saved = userRepository.save(user);
+        BulkProcessor.afterCommit(() -> revokeCredentials(saved.getUsername()));
 
-        return userRepository.save(user);
+        return saved;
     }
 
+    /**
+     * Saving the user checks its version, so a concurrent change to the same user makes the save fail instead
+     * of being overwritten; the user is then read again and the book added again, a bounded number of times.
+     * @param userId
+     * @param bookId
+     * @return the user with the book
+     * @throws UserUpdateConflictException when every attempt lost against a concurrent change
+     */
     @PutMapping("/{userId}/{bookId}")
-    public User addBook(@PathVariable("userId") Long userId, @PathVariable("bookId") Long bookId) throws BookNotFoundException, UserNotFoundException, BookAlreadyOwnedException {
-        Book book = bookRepository.findById(bookId).orElseThrow(BookNotFoundException::new);
+    public User addBook(@PathVariable("userId") Long userId, @PathVariable("bookId") Long bookId)
+        throws BookNotFoundException, UserNotFoundException, BookAlreadyOwnedException, UserUpdateConflictException {
 
-        User user = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
+        return retryingConflicts(() -> {
+            Book book = bookRepository.findById(bookId).orElseThrow(BookNotFoundException::new);
+
+            User user = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
 
-        user.addBook(book);
+            user.addBook(book);
 
-        return userRepository.save(user);
+            return userRepository.save(user);
+        });
     }
 
+    /**
+     * Retried on concurrent changes the same way as {@link #addBook}.
+     */
     @DeleteMapping("/{userId}/{bookId}")
-    public User removeBook(@PathVariable("userId") Long userId, @PathVariable("bookId") Long bookId) throws BookNotFoundException, UserNotFoundException, BookAlreadyOwnedException {
-        Book book = bookRepository.findById(bookId).orElseThrow(BookNotFoundException::new);
+    public User removeBook(@PathVariable("userId") Long userId, @PathVariable("bookId") Long bookId)
+        throws BookNotFoundException, UserNotFoundException, BookAlreadyOwnedException, UserUpdateConflictException {
 
-        User user = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
+        return retryingConflicts(() -> {
+            Book book = bookRepository.findById(bookId).orElseThrow(BookNotFoundException::new);
 
-        try {
-            user.removeBook(book);
-        } catch (BookNotFoundException ex){
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage(), ex);
-        }
+            User user = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
+
+            try {
+                user.removeBook(book);
+            } catch (BookNotFoundException ex){
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage(), ex);
+            }
+
+            return userRepository.save(user);
+        });
+    }
+
+    /**
+     * Same as {@link #addBook} but only writes the join row, so it costs the same however many books the
+     * user owns.
+     */
+    @PutMapping("/{userId}/books/{bookId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void addBookToLibrary(@PathVariable("userId") Long userId, @PathVariable("bookId") Long bookId)
+        throws UserNotFoundException, BookNotFoundException, BookAlreadyOwnedException {
 
-        return userRepository.save(user);
+        userRepository.addBook(userId, bookId);
+    }
+
+    /**
+     * Same as {@link #removeBook} but only deletes the join row.
+     */
+    @DeleteMapping("/{userId}/books/{bookId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void removeBookFromLibrary(@PathVariable("userId") Long userId, @PathVariable("bookId") Long bookId)
+        throws UserNotFoundException, BookNotFoundException {
+
+        userRepository.removeBook(userId, bookId);
     }
 
   @GetMapping("/birthdateBetweenAndNameContains")
@@ -160,4 +377,197 @@ public class UserController {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Invalid date", ex);
         }
     }
+
+    //region private methods
+    /**
+     * After the password changed or the user is gone: neither its cached credentials nor its tokens may
+     * authenticate anymore.
+     */
+    private void revokeCredentials(String username) {
+        authenticationCache.invalidate(username);
+        tokenService.revoke(username);
+    }
+
+    /**
+     * After any other change of the user. Its tokens only go if the username they carry was given up, as
+     * another user could take it.
+     */
+    private void forgetCredentials(String previousUsername, String username) {
+        authenticationCache.invalidate(previousUsername);
+
+        if(!previousUsername.equals(username)) {
+            tokenService.revoke(previousUsername);
+        }
+    }
+
+    /**
+     * Runs before the chunk's transaction is opened: BCrypt is slow on purpose and would keep the transaction
+     * open for the whole chunk.
+     */
+    private List<HashedUser> hashPasswords(List<User> users) {
+        List<HashedUser> hashed = new ArrayList<>();
+
+        for(User received : users) {
+            if(received.anyRequiredAttributeNull() || received.getPassword() == null) {
+                hashed.add(new HashedUser(received, null, BulkItemResult.failed(Status.INVALID, null, "Missing attributes")));
+                continue;
+            }
+
+            try {
+                hashed.add(new HashedUser(received, passwordHashingService.hash(received.getPassword()), null));
+            } catch (PasswordHashingUnavailableException ex) {
+                hashed.add(new HashedUser(received, null, BulkItemResult.failed(Status.FAILED, null, ex.getMessage())));
+            }
+        }
+
+        return hashed;
+    }
+
+    private List<BulkItemResult> createChunk(List<HashedUser> users) {
+        List<BulkItemResult> results = new ArrayList<>();
+
+        for(HashedUser hashed : users) {
+            if(hashed.failure != null) {
+                results.add(hashed.failure);
+                continue;
+            }
+
+            // a new entity per attempt, the chunk may be applied again one user at a time
+            User user = new User(hashed.received.getName(), hashed.received.getUsername(),
+                hashed.received.getBirthdate(), hashed.passwordHash);
+            userRepository.save(user);
+
+            results.add(BulkItemResult.of(Status.CREATED, user.getId()));
+        }
+
+        return results;
+    }
+
+    private List<BulkItemResult> updateChunk(List<User> users) {
+        Map<Long, User> stored = findStoredById(users.stream().map(User::getId).filter(Objects::nonNull).collect(Collectors.toList()));
+        List<BulkItemResult> results = new ArrayList<>();
+
+        for(User received : users) {
+            User user = received.getId() != null ? stored.get(received.getId()) : null;
+
+            if(received.getId() == null || received.anyRequiredAttributeNull()) {
+                results.add(BulkItemResult.failed(Status.INVALID, received.getId(), "Missing attributes"));
+            } else if(user == null) {
+                results.add(BulkItemResult.failed(Status.NOT_FOUND, received.getId(), null));
+            } else {
+                String username = user.getUsername();
+                BulkProcessor.afterCommit(() -> forgetCredentials(username, received.getUsername()));
+
+                user.setName(received.getName());
+                user.setUsername(received.getUsername());
+                user.setBirthdate(received.getBirthdate());
+                user.setBooks(storedBooks(received.getBooks()));
+                userRepository.save(user);
+
+                results.add(BulkItemResult.of(Status.UPDATED, user.getId()));
+            }
+        }
+
+        return results;
+    }
+
+    private List<BulkItemResult> deleteChunk(List<Long> ids) {
+        Map<Long, User> stored = findStoredById(ids.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+        List<BulkItemResult> results = new ArrayList<>();
+
+        for(Long id : ids) {
+            User user = id != null ? stored.get(id) : null;
+
+            if(user == null) {
+                results.add(BulkItemResult.failed(Status.NOT_FOUND, id, null));
+            } else {
+                String username = user.getUsername();
+                BulkProcessor.afterCommit(() -> revokeCredentials(username));
+
+                results.add(BulkItemResult.of(Status.DELETED, id));
+            }
+        }
+
+        userRepository.deleteAll(stored.values());
+
+        return results;
+    }
+
+    /**
+     * Swaps every received book that is already stored for the stored one. Books read from a request carry
+     * no version, Hibernate would take them for new books and insert them again.
+     * @param received
+     * @return the books to give the user, in the received order
+     */
+    private List<Book> storedBooks(Collection<Book> received) {
+        List<Long> ids = received.stream().map(Book::getId).filter(Objects::nonNull).collect(Collectors.toList());
+
+        if(ids.isEmpty()) {
+            return new ArrayList<>(received);
+        }
+
+        Map<Long, Book> stored = StreamSupport.stream(bookRepository.findAllById(ids).spliterator(), false)
+            .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        return received.stream()
+            .map(book -> book.getId() != null ? stored.getOrDefault(book.getId(), book) : book)
+            .collect(Collectors.toList());
+    }
+
+    private Map<Long, User> findStoredById(List<Long> ids) {
+        return StreamSupport.stream(userRepository.findAllById(ids).spliterator(), false)
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    /**
+     * Runs the change again while its save fails on the user's version. The failed transaction is rolled
+     * back, which also clears the request's persistence context, so the next attempt reads the user as the
+     * winner left it. Attempts are spaced by a random pause that grows with each try, so the losers of one
+     * round do not collide again in the next.
+     */
+    private User retryingConflicts(LibraryChange change)
+        throws BookNotFoundException, UserNotFoundException, BookAlreadyOwnedException, UserUpdateConflictException {
+
+        for(int attempt = 1; ; attempt++) {
+            try {
+                return change.apply();
+            } catch (OptimisticLockingFailureException ex) {
+                if(attempt >= libraryMaxAttempts) {
+                    throw new UserUpdateConflictException("Gave up after " + attempt + " attempts", ex);
+                }
+            }
+
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(libraryBackoffMs * attempt + 1));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new UserUpdateConflictException("Interrupted while waiting to retry", ex);
+            }
+        }
+    }
+    //endregion
+
+    @FunctionalInterface
+    private interface LibraryChange {
+
+        User apply() throws BookNotFoundException, UserNotFoundException, BookAlreadyOwnedException;
+
+    }
+
+    private static class HashedUser {
+
+        private final User received;
+
+        private final String passwordHash;
+
+        private final BulkItemResult failure;
+
+        private HashedUser(User received, String passwordHash, BulkItemResult failure) {
+            this.received = received;
+            this.passwordHash = passwordHash;
+            this.failure = failure;
+        }
+
+    }
+
 }
@@ -0,0 +1,18 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "Book Isbn Mismatch")
+public class BookIsbnMismatchException extends Exception {
+
+    public BookIsbnMismatchException(){ super();  }
+
+    public BookIsbnMismatchException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+    public BookIsbnMismatchException(String message){
+        super(message);
+    }
+}
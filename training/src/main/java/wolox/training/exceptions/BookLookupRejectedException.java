@@ -0,0 +1,13 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "Too Many Pending Book Lookups")
+public class BookLookupRejectedException extends OpenLibraryUnavailableException {
+
+    public BookLookupRejectedException(){
+        super("Too many OpenLibrary lookups are pending, try again later.");
+    }
+
+}
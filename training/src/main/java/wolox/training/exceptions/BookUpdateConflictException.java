@@ -0,0 +1,21 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "Book Modified Concurrently")
+public class BookUpdateConflictException extends Exception {
+
+    public BookUpdateConflictException(){
+        super();
+    }
+
+    public BookUpdateConflictException(String message){
+        super(message);
+    }
+
+    public BookUpdateConflictException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+}
@@ -6,6 +6,10 @@ public class ConnectionFailedException extends Exception {
         super();
     }
 
+    public ConnectionFailedException(String message){
+        super(message);
+    }
+
     public ConnectionFailedException(Integer statusCode, String message){
         super("Connection failed. Status code: "+statusCode+". Message: "+message+".");
     }
@@ -0,0 +1,21 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.UNAUTHORIZED, reason = "Wrong User Or Password")
+public class InvalidCredentialsException extends Exception {
+
+    public InvalidCredentialsException(){
+        super();
+    }
+
+    public InvalidCredentialsException(String message){
+        super(message);
+    }
+
+    public InvalidCredentialsException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+}
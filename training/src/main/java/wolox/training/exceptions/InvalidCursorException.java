@@ -0,0 +1,21 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "Invalid Cursor")
+public class InvalidCursorException extends Exception {
+
+    public InvalidCursorException(){
+        super();
+    }
+
+    public InvalidCursorException(String message){
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,17 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "OpenLibrary Unavailable")
+public class OpenLibraryUnavailableException extends ConnectionFailedException {
+
+    public OpenLibraryUnavailableException(){
+        super("OpenLibrary is unavailable, requests are suspended until it recovers.");
+    }
+
+    public OpenLibraryUnavailableException(String message){
+        super(message);
+    }
+
+}
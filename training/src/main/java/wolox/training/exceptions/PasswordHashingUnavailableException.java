@@ -0,0 +1,21 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "Password Hashing Unavailable")
+public class PasswordHashingUnavailableException extends Exception {
+
+    public PasswordHashingUnavailableException(){
+        super();
+    }
+
+    public PasswordHashingUnavailableException(String message){
+        super(message);
+    }
+
+    public PasswordHashingUnavailableException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+}
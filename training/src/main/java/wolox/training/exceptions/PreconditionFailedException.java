@@ -0,0 +1,21 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED, reason = "Resource Was Modified")
+public class PreconditionFailedException extends Exception {
+
+    public PreconditionFailedException(){
+        super();
+    }
+
+    public PreconditionFailedException(String message){
+        super(message);
+    }
+
+    public PreconditionFailedException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+}
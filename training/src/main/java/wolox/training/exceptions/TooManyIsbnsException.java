@@ -0,0 +1,17 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.PAYLOAD_TOO_LARGE, reason = "Too Many ISBNs")
+public class TooManyIsbnsException extends Exception {
+
+    public TooManyIsbnsException(){
+        super();
+    }
+
+    public TooManyIsbnsException(String message){
+        super(message);
+    }
+
+}
@@ -0,0 +1,21 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "User Modified Concurrently")
+public class UserUpdateConflictException extends Exception {
+
+    public UserUpdateConflictException(){
+        super();
+    }
+
+    public UserUpdateConflictException(String message){
+        super(message);
+    }
+
+    public UserUpdateConflictException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+}
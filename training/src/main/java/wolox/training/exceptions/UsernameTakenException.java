@@ -0,0 +1,21 @@
+package wolox.training.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT, reason = "Username Already Taken")
+public class UsernameTakenException extends Exception {
+
+    public UsernameTakenException(){
+        super();
+    }
+
+    public UsernameTakenException(String message){
+        super(message);
+    }
+
+    public UsernameTakenException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+}
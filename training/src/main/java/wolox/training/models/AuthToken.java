@@ -0,0 +1,34 @@
+package wolox.training.models;
+
+public class AuthToken {
+
+    private String token;
+
+    private Long expiresAt;
+
+    public AuthToken() {
+
+    }
+
+    public AuthToken(String token, Long expiresAt) {
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+}
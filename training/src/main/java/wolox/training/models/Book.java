@@ -1,29 +1,59 @@
 package wolox.training.models;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonView;
 import java.util.Objects;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.postgresql.shaded.com.ongres.scram.common.util.Preconditions;
 import wolox.training.exceptions.UnableToCreateBookFromDTOException;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_book_isbn", columnNames = "isbn"))
 public class Book {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @GenericGenerator(name = "book_seq", strategy = "wolox.training.repositories.PooledLoSequenceGenerator",
+        parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "book_seq"))
     @Column(name = "id", updatable = false, nullable = false)
+    @JsonView(Views.Summary.class)
     private Long id;
+
+    /**
+     * Bumped by Hibernate on every update. Sent to clients inside the ETag, never read from a request body.
+     */
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
   
+    @JsonView(Views.Summary.class)
     private String genre;
     @NotNull
+    @JsonView(Views.Summary.class)
     private String author;
     @NotNull
     private String image;
     @NotNull
+    @JsonView(Views.Summary.class)
     private String title;
     @NotNull
     private String subtitle;
@@ -34,6 +64,8 @@ public class Book {
     @NotNull
     private Integer pages;
     @NotNull
+    @NaturalId
+    @JsonView(Views.Summary.class)
     private String isbn;
 
     public Book() {
@@ -69,6 +101,27 @@ public class Book {
     }
     
     public Long getId() { return id; }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Copies every attribute but the id and the ISBN from the given book. The ISBN is the book's identity,
+     * in {@link #equals} and in the natural id, so it is only set when the book is created; callers reject
+     * updates that carry another one.
+     * @param book
+     */
+    public void updateFrom(Book book) {
+        setAuthor(book.getAuthor());
+        setImage(book.getImage());
+        setTitle(book.getTitle());
+        setSubtitle(book.getSubtitle());
+        setPublisher(book.getPublisher());
+        setYear(book.getYear());
+        setPages(book.getPages());
+        setGenre(book.getGenre());
+    }
   
     public String getAuthor() {
         return author;
@@ -157,26 +210,24 @@ public class Book {
 
     @Override
     public boolean equals(Object o) {
-        if (o == null || getClass() != o.getClass()) {
+        if (this == o) {
+            return true;
+        }
+        // instanceof and the getter, so a lazy proxy equals the book it stands for
+        if (!(o instanceof Book)) {
             return false;
         }
         Book book = (Book) o;
-        return Objects.equals(id, book.id) &&
-            Objects.equals(genre, book.genre) &&
-            Objects.equals(author, book.author) &&
-            Objects.equals(image, book.image) &&
-            Objects.equals(title, book.title) &&
-            Objects.equals(subtitle, book.subtitle) &&
-            Objects.equals(publisher, book.publisher) &&
-            Objects.equals(year, book.year) &&
-            Objects.equals(pages, book.pages) &&
-            Objects.equals(isbn, book.isbn);
+        return Objects.equals(getIsbn(), book.getIsbn());
     }
 
+    /**
+     * Based on the ISBN alone: it is unique, known before the book is persisted and never changes
+     * afterwards, so the book keeps its place in a user's set.
+     */
     @Override
     public int hashCode() {
-        return Objects
-            .hash(id, genre, author, image, title, subtitle, publisher, year, pages, isbn);
+        return Objects.hash(getIsbn());
     }
 }
 
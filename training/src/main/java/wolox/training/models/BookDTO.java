@@ -1,5 +1,6 @@
 package wolox.training.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.Joiner;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -81,16 +82,19 @@ public class BookDTO {
         this.image = image;
     }
 
+    @JsonIgnore
     public String getAuthorsAsString(){
         String response = Joiner.on(" - ").join(this.getAuthors());
         return response;
     }
 
+    @JsonIgnore
     public String getPublishersAsString(){
         String response = Joiner.on(" - ").join(this.getPublishers());
         return response;
     }
 
+    @JsonIgnore
     public String getYear(){
         Pattern pattern = Pattern.compile(".*(\\d{4}).*");
         Matcher matcher = pattern.matcher(getPublishDate());
@@ -0,0 +1,57 @@
+package wolox.training.models;
+
+/**
+ * Outcome of one item of a bulk request. {@code index} is the item's position in the request body.
+ */
+public class BulkItemResult {
+
+    public enum Status { CREATED, UPDATED, DELETED, EXISTING, INVALID, NOT_FOUND, FAILED }
+
+    private int index;
+
+    private Status status;
+
+    private Long id;
+
+    private String error;
+
+    public BulkItemResult() {
+
+    }
+
+    public BulkItemResult(int index, Status status, Long id, String error) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.error = error;
+    }
+
+    public static BulkItemResult of(Status status, Long id) {
+        return new BulkItemResult(0, status, id, null);
+    }
+
+    public static BulkItemResult failed(Status status, Long id, String error) {
+        return new BulkItemResult(0, status, id, error);
+    }
+
+    public BulkItemResult atIndex(int index) {
+        return new BulkItemResult(index, status, id, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,60 @@
+package wolox.training.models;
+
+import java.time.Instant;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Persistent copy of an OpenLibrary lookup, so the book info cache survives restarts.
+ * A row with {@code found = false} records an ISBN OpenLibrary does not know about.
+ */
+@Entity
+@Table(name = "book_info_cache")
+public class CachedBookInfo {
+
+    @Id
+    @Column(name = "isbn", updatable = false, nullable = false)
+    private String isbn;
+
+    @Column(name = "payload", columnDefinition = "text")
+    private String payload;
+
+    @NotNull
+    @Column(name = "found")
+    private Boolean found;
+
+    @NotNull
+    @Column(name = "fetched_at")
+    private Instant fetchedAt;
+
+    public CachedBookInfo() {
+
+    }
+
+    public CachedBookInfo(String isbn, String payload, Boolean found, Instant fetchedAt) {
+        this.isbn = isbn;
+        this.payload = payload;
+        this.found = found;
+        this.fetchedAt = fetchedAt;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Boolean getFound() {
+        return found;
+    }
+
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+
+}
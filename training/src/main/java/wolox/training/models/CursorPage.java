@@ -0,0 +1,33 @@
+package wolox.training.models;
+
+import java.util.List;
+
+/**
+ * A page of a keyset paginated listing. {@code nextCursor} is an opaque token to pass back as {@code cursor}
+ * to get the following page, or null when this is the last one.
+ * @param <T>
+ */
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    private String nextCursor;
+
+    public CursorPage() {
+
+    }
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+}
@@ -0,0 +1,50 @@
+package wolox.training.models;
+
+public class IsbnImportResult {
+
+    public enum Status { CREATED, EXISTING, NOT_FOUND, FAILED }
+
+    private String isbn;
+
+    private Status status;
+
+    private Long bookId;
+
+    private String error;
+
+    public IsbnImportResult() {
+
+    }
+
+    public IsbnImportResult(String isbn, Status status, Long bookId, String error) {
+        this.isbn = isbn;
+        this.status = status;
+        this.bookId = bookId;
+        this.error = error;
+    }
+
+    public static IsbnImportResult of(Book book, Status status) {
+        return new IsbnImportResult(book.getIsbn(), status, book.getId(), null);
+    }
+
+    public static IsbnImportResult failed(String isbn, Status status, String error) {
+        return new IsbnImportResult(isbn, status, null, error);
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,53 @@
+package wolox.training.models;
+
+/**
+ * Running totals of a catalog upload, reported after every batch and once more when the upload ends.
+ */
+public class UploadProgress {
+
+    private int rows;
+
+    private int created;
+
+    private int rejected;
+
+    private boolean done;
+
+    private String error;
+
+    public UploadProgress() {
+
+    }
+
+    public UploadProgress(int rows, int created, int rejected, boolean done, String error) {
+        this.rows = rows;
+        this.created = created;
+        this.rejected = rejected;
+        this.done = done;
+        this.error = error;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return why reading stopped before the end of the input, null if the whole input was read
+     */
+    public String getError() {
+        return error;
+    }
+
+}
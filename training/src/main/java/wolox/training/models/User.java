@@ -3,26 +3,36 @@ package wolox.training.models;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonView;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+import com.google.common.io.BaseEncoding;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.postgresql.shaded.com.ongres.scram.common.util.Preconditions;
-import org.springframework.context.annotation.Bean;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import wolox.training.exceptions.BookAlreadyOwnedException;
 import wolox.training.exceptions.BookNotFoundException;
 
@@ -31,10 +41,21 @@ public class User {
 
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @GenericGenerator(name = "users_seq", strategy = "wolox.training.repositories.PooledLoSequenceGenerator",
+        parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "users_seq"))
+    @JsonView(Views.Summary.class)
     private Long id;
 
+    /**
+     * Bumped by Hibernate on every update, including changes to the books. Never read from a request body.
+     */
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @NotNull
+    @JsonView(Views.Summary.class)
     private String username;
 
     @NotNull @Column(length = 60)
@@ -42,6 +63,7 @@ public class User {
     private String password;
 
     @NotNull
+    @JsonView(Views.Summary.class)
     private String name;
 
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern="yyyy-MM-dd")
@@ -50,9 +72,13 @@ public class User {
     @NotNull
     private LocalDate birthdate;
 
+    /**
+     * Mapped as a set so Hibernate writes only the added or removed join rows on flush, instead of
+     * rewriting the whole collection as it does for lists. Books are told apart by ISBN.
+     */
     @ManyToMany(cascade = CascadeType.ALL)
     @JsonProperty("books")
-    private List<Book> books = new ArrayList<>();
+    private Set<Book> books = new LinkedHashSet<>();
 
     public User(){
 
@@ -68,6 +94,27 @@ public class User {
     public Long getId() {
         return id;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Changes whenever the user or any of its books changes: the user's version and an MD5 of its books' ids
+     * and versions, in id order. A sum of the versions would let two different libraries share a tag.
+     * {@code UserRepository.findVersionTagById} computes the same value in the database.
+     */
+    @JsonIgnore
+    public String getVersionTag() {
+        String booksVersions = books.stream()
+            .filter(book -> book.getId() != null)
+            .sorted(Comparator.comparing(Book::getId))
+            .map(book -> book.getId() + ":" + (book.getVersion() == null ? 0 : book.getVersion()))
+            .collect(Collectors.joining(","));
+
+        return (version == null ? 0 : version) + "."
+            + (booksVersions.isEmpty() ? "" : md5Hex(booksVersions));
+    }
   
     public String getUsername() {
         return username;
@@ -83,9 +130,14 @@ public class User {
         return password;
     }
 
+    /**
+     * Stores the password as given. Raw passwords coming from the API are hashed through
+     * PasswordHashingService by the controllers before being persisted.
+     * @param password
+     */
     public void setPassword(String password) {
         Preconditions.checkNotNull(password, "The password cannot be null");
-        this.password = encoder().encode(password);
+        this.password = password;
     }
 
     public String getName() {
@@ -108,37 +160,39 @@ public class User {
     }
 
     @JsonIgnore
-    public List<Book> getBooks() {
-        return Collections.unmodifiableList(books);
+    public Set<Book> getBooks() {
+        return Collections.unmodifiableSet(books);
     }
 
-    public void setBooks(List<Book> books) {
+    /**
+     * Replaces the contents of the current collection rather than the collection itself, so only the
+     * difference is written.
+     * @param books
+     */
+    public void setBooks(Collection<Book> books) {
 
         Preconditions.checkNotNull(books, "The books' list cannot be empty");
-        this.books = books;
+        Set<Book> replacement = new LinkedHashSet<>(books);
+        this.books.clear();
+        this.books.addAll(replacement);
     }
 
     public void addBook(Book book) throws BookAlreadyOwnedException {
 
         Preconditions.checkNotNull(book, "The book cannot be empty");
 
-        if(books.contains(book)){
+        if(!books.add(book)){
             throw new BookAlreadyOwnedException("This user already has the book");
         }
-
-        books.add(book);
     }
 
     public void removeBook(Book book) throws BookNotFoundException{
 
         Preconditions.checkNotNull(book, "The book cannot be empty");
 
-        if(!books.contains(book)){
+        if(!books.remove(book)){
             throw new BookNotFoundException("This user does not own the book you are trying to delete");
         }
-
-        books.remove(book);
-
     }
 
     public Boolean anyRequiredAttributeNull()
@@ -155,17 +209,27 @@ public class User {
         return Objects.equals(id, user.id) &&
             Objects.equals(username, user.username) &&
             Objects.equals(name, user.name) &&
-            Objects.equals(birthdate, user.birthdate) &&
-            Objects.equals(books, user.books);
+            Objects.equals(birthdate, user.birthdate);
     }
 
+    /**
+     * Leaves books out on purpose: walking the collection would load it.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(id, username, name, birthdate, books);
-    }
-
-    @Bean
-    public PasswordEncoder encoder(){
-        return new BCryptPasswordEncoder();
+        return Objects.hash(id, username, name, birthdate);
+    }
+
+    /**
+     * Lowercase hex, as PostgreSQL's md5() returns it.
+     */
+    private static String md5Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return BaseEncoding.base16().lowerCase().encode(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform is required to provide MD5
+            throw new IllegalStateException(ex);
+        }
     }
 }
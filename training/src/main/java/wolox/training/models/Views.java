@@ -0,0 +1,20 @@
+package wolox.training.models;
+
+/**
+ * Named subsets of the models' JSON, picked with the {@code view} parameter of the list endpoints. Only the
+ * properties marked with a view are written when it is active; without a view every property is.
+ */
+public final class Views {
+
+    private Views() {
+
+    }
+
+    /**
+     * Enough to show a model in a list and find it again by id.
+     */
+    public interface Summary {
+
+    }
+
+}
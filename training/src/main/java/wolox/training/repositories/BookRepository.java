@@ -1,29 +1,50 @@
 package wolox.training.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Component;
 import wolox.training.models.Book;
 
 @Component
-public interface BookRepository extends CrudRepository<Book, Long> {
+public interface BookRepository extends CrudRepository<Book, Long>, BookRepositoryCustom {
 
     public Optional<Book> findFirstByAuthor(String author);
 
-    public Optional<Book> findByIsbn(String isbn);
-
-    @Query(value = "SELECT b FROM Book b WHERE (:publisher is null OR b.publisher = :publisher) AND (:genre is null OR b.genre=:genre) AND (:year is null OR b.year=:year)")
-    public List<Book> findByPublisherAndGenreAndYear(@Param("publisher") String publisher, @Param("genre") String genre, @Param("year") String year, Pageable pageable);
-
-
-    @Query(value = "SELECT b FROM Book b WHERE (:author is null OR b.author = :author) AND (:genre is null OR b.genre = :genre) AND (:image is null OR b.image = :image) AND "
-        + "(:title is null OR b.title = :title) AND (:subtitle is null OR b.subtitle = :subtitle) AND (:publisher is null OR b.publisher = :publisher) AND (:year is null OR b.year = :year) AND "
-        + "(:pages is null OR b.pages = :pages) AND (:isbn is null OR b.isbn = :isbn)")
-    public List<Book> findAll(@Param("author") String author, @Param("genre") String genre, @Param("image") String image, @Param("title") String title, @Param("subtitle") String subtitle,
-        @Param("publisher") String publisher, @Param("year") String year, @Param("pages") Integer pages, @Param("isbn") String isbn, Pageable pageable);
+    public List<Book> findByIsbnIn(Collection<String> isbns);
+
+    /**
+     * @param id
+     * @return the book's version, read without loading the book
+     */
+    @Query("SELECT b.version FROM Book b WHERE b.id = :id")
+    public Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Every book by id, read through a server side cursor. Must be consumed, and closed, inside a transaction.
+     * The rows bypass the second-level cache, which a full export would otherwise fill with every book.
+     * @return the books, fetched from the database a few hundred rows at a time
+     */
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true"),
+        @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+    public Stream<Book> streamAll();
+
+    public default List<Book> findAll(String author, String genre, String image, String title, String subtitle,
+        String publisher, String year, Integer pages, String isbn, Pageable pageable) {
+
+        return findMatching(BookSpecifications.matching(author, genre, image, title, subtitle, publisher, year, pages, isbn), pageable);
+    }
 
 }
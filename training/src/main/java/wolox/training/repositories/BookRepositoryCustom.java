@@ -0,0 +1,52 @@
+package wolox.training.repositories;
+
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import wolox.training.exceptions.InvalidCursorException;
+import wolox.training.models.Book;
+import wolox.training.models.CursorPage;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Looks the book up by its natural id, so repeated lookups are answered from the second-level cache.
+     * @param isbn
+     * @return the book with that ISBN, if any
+     */
+    public Optional<Book> findByIsbn(String isbn);
+
+    /**
+     * Same as {@link #findMatching(Specification, Pageable)} with {@link BookSpecifications#publisherGenreAndYear},
+     * but the matching ids are kept in the query cache until the book table is written to.
+     * @param publisher null to match any
+     * @param genre null to match any
+     * @param year null to match any
+     * @param pageable may be null
+     * @return the requested page of books
+     */
+    public List<Book> findByPublisherAndGenreAndYear(String publisher, String genre, String year, Pageable pageable);
+
+    /**
+     * Lists the books matching the specification, without running a count query.
+     * @param specification see {@link BookSpecifications}, null matches every book
+     * @param pageable may be null
+     * @return the requested page of books
+     */
+    public List<Book> findMatching(Specification<Book> specification, Pageable pageable);
+
+    /**
+     * Keyset paginated listing of the books matching the specification.
+     * @param specification see {@link BookSpecifications}, null matches every book
+     * @param sort one of id, title, author, publisher, year, pages or isbn
+     * @param direction
+     * @param cursor the previous page's {@code nextCursor}, or null for the first page
+     * @param size
+     * @return the page
+     */
+    public CursorPage<Book> seek(Specification<Book> specification, String sort, Direction direction, String cursor, int size)
+        throws InvalidCursorException;
+
+}
@@ -0,0 +1,54 @@
+package wolox.training.repositories;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+import wolox.training.exceptions.InvalidCursorException;
+import wolox.training.models.Book;
+import wolox.training.models.CursorPage;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    private static final String FILTERS_CACHE_REGION = "book-filters";
+
+    // each backed by an index on (column, id), see V8__keyset_indexes.sql; not isbn, which would need one more
+    // index only to be ordered by
+    private static final HashSet<String> SORTABLE_ATTRIBUTES =
+        new HashSet<>(Arrays.asList("id", "title", "author", "publisher", "year", "pages"));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Book> findByIsbn(String isbn) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Book.class).loadOptional(isbn);
+    }
+
+    @Override
+    public List<Book> findByPublisherAndGenreAndYear(String publisher, String genre, String year, Pageable pageable) {
+        return new SpecificationQueries(entityManager).list(Book.class,
+            BookSpecifications.publisherGenreAndYear(publisher, genre, year), pageable, FILTERS_CACHE_REGION);
+    }
+
+    @Override
+    public List<Book> findMatching(Specification<Book> specification, Pageable pageable) {
+        return new SpecificationQueries(entityManager).list(Book.class, specification, pageable);
+    }
+
+    @Override
+    public CursorPage<Book> seek(Specification<Book> specification, String sort, Direction direction, String cursor, int size)
+        throws InvalidCursorException {
+
+        return new KeysetPaginator(entityManager, SORTABLE_ATTRIBUTES).seek(Book.class, specification, sort, direction, cursor, size);
+    }
+
+}
@@ -0,0 +1,44 @@
+package wolox.training.repositories;
+
+import org.springframework.data.jpa.domain.Specification;
+import wolox.training.models.Book;
+
+/**
+ * Book filters that only add a predicate for the values actually given, so every combination of filters
+ * becomes its own plain {@code col = ?} query that PostgreSQL can plan against the matching index.
+ */
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+
+    }
+
+    public static Specification<Book> attributeEquals(String attribute, Object value) {
+        if(value == null) {
+            return null;
+        }
+
+        return (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    public static Specification<Book> matching(String author, String genre, String image, String title, String subtitle,
+        String publisher, String year, Integer pages, String isbn) {
+
+        return Specification.where(attributeEquals("author", author))
+            .and(attributeEquals("genre", genre))
+            .and(attributeEquals("image", image))
+            .and(attributeEquals("title", title))
+            .and(attributeEquals("subtitle", subtitle))
+            .and(attributeEquals("publisher", publisher))
+            .and(attributeEquals("year", year))
+            .and(attributeEquals("pages", pages))
+            .and(attributeEquals("isbn", isbn));
+    }
+
+    public static Specification<Book> publisherGenreAndYear(String publisher, String genre, String year) {
+        return Specification.where(attributeEquals("publisher", publisher))
+            .and(attributeEquals("genre", genre))
+            .and(attributeEquals("year", year));
+    }
+
+}
@@ -0,0 +1,10 @@
+package wolox.training.repositories;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Component;
+import wolox.training.models.CachedBookInfo;
+
+@Component
+public interface CachedBookInfoRepository extends CrudRepository<CachedBookInfo, String> {
+
+}
@@ -0,0 +1,74 @@
+package wolox.training.repositories;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Base64;
+import org.springframework.data.domain.Sort.Direction;
+import wolox.training.exceptions.InvalidCursorException;
+
+/**
+ * Position of the last row of a keyset page: the sort column, its direction, and the sort value and id of
+ * that row. Clients only ever see it as an opaque url-safe token.
+ */
+public class KeysetCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String sort;
+
+    private Direction direction;
+
+    private String value;
+
+    private Long id;
+
+    public KeysetCursor() {
+
+    }
+
+    public KeysetCursor(String sort, Direction direction, String value, Long id) {
+        this.sort = sort;
+        this.direction = direction;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static KeysetCursor decode(String token) throws InvalidCursorException {
+        try {
+            KeysetCursor cursor = MAPPER.readValue(Base64.getUrlDecoder().decode(token), KeysetCursor.class);
+
+            if(cursor.sort == null || cursor.direction == null || cursor.value == null || cursor.id == null) {
+                throw new InvalidCursorException("Incomplete cursor");
+            }
+
+            return cursor;
+        } catch (IllegalArgumentException | IOException ex) {
+            throw new InvalidCursorException("Malformed cursor", ex);
+        }
+    }
+
+    public String encode() {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(this));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+}
@@ -0,0 +1,164 @@
+package wolox.training.repositories;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import wolox.training.exceptions.InvalidCursorException;
+import wolox.training.models.CursorPage;
+
+/**
+ * Builds keyset (seek) queries over {@code (sort column, id)}: instead of skipping rows with OFFSET, each page
+ * starts right after the last row of the previous one, so every page costs the same as the first.
+ * Sort columns must be non nullable attributes listed by the calling repository, each with an index on
+ * {@code (column, id)} that serves both the range the page starts at and its order.
+ */
+class KeysetPaginator {
+
+    private static final String ID = "id";
+
+    private static final String LAST_VALUE = "lastValue";
+
+    private static final String LAST_ID = "lastId";
+
+    private final EntityManager entityManager;
+
+    private final Set<String> sortableAttributes;
+
+    KeysetPaginator(EntityManager entityManager, Set<String> sortableAttributes) {
+        this.entityManager = entityManager;
+        this.sortableAttributes = sortableAttributes;
+    }
+
+    /**
+     * @param type entity to list
+     * @param specification filters rows must match, or null
+     * @param sort attribute to sort by, ties are broken by id
+     * @param direction
+     * @param cursor token returned as {@code nextCursor} by the previous page, or null for the first page
+     * @param size
+     * @return the page, with the cursor of its last row if there may be more
+     */
+    <T> CursorPage<T> seek(Class<T> type, Specification<T> specification, String sort, Direction direction, String cursor, int size)
+        throws InvalidCursorException {
+
+        if(!sortableAttributes.contains(sort)) {
+            throw new InvalidCursorException("Cannot sort by " + sort);
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        List<Predicate> predicates = new ArrayList<>();
+
+        Predicate filter = specification == null ? null : specification.toPredicate(root, query, cb);
+
+        if(filter != null) {
+            predicates.add(filter);
+        }
+
+        KeysetCursor position = null;
+
+        if(cursor != null) {
+            position = KeysetCursor.decode(cursor);
+
+            if(!position.getSort().equals(sort) || position.getDirection() != direction) {
+                throw new InvalidCursorException("Cursor was issued for a different sort");
+            }
+
+            predicates.add(after(cb, root, sort, direction));
+        }
+
+        Path<Comparable<Object>> sortPath = root.get(sort);
+        Path<Long> idPath = root.get(ID);
+
+        query.select(root)
+            .where(predicates.toArray(new Predicate[0]))
+            .orderBy(direction.isAscending()
+                ? new Order[] {cb.asc(sortPath), cb.asc(idPath)}
+                : new Order[] {cb.desc(sortPath), cb.desc(idPath)});
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query).setMaxResults(size + 1);
+
+        if(position != null) {
+            typedQuery.setParameter(LAST_ID, position.getId());
+
+            if(!sort.equals(ID)) {
+                typedQuery.setParameter(LAST_VALUE, parseValue(sortPath.getJavaType(), position.getValue()));
+            }
+        }
+
+        List<T> rows = typedQuery.getResultList();
+
+        if(rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+
+        List<T> content = new ArrayList<>(rows.subList(0, size));
+        DirectFieldAccessor last = new DirectFieldAccessor(content.get(size - 1));
+        String nextCursor = new KeysetCursor(sort, direction, String.valueOf(last.getPropertyValue(sort)),
+            (Long) last.getPropertyValue(ID)).encode();
+
+        return new CursorPage<>(content, nextCursor);
+    }
+
+    //region private methods
+    /**
+     * rows strictly after the cursor position, {@code sort > value OR (sort = value AND id > lastId)}, reversed for
+     * descending. Written as {@code sort >= value AND (sort > value OR id > lastId)}: PostgreSQL cannot start an
+     * index scan at a top level OR, but can at the first term, leaving only the ties with the cursor row to filter.
+     * The position is bound as parameters, so every page runs the same statement: Hibernate would inline
+     * numeric literals.
+     */
+    private <T> Predicate after(CriteriaBuilder cb, Root<T> root, String sort, Direction direction) {
+        Path<Comparable<Object>> sortPath = root.get(sort);
+        Path<Long> idPath = root.get(ID);
+        ParameterExpression<Long> lastId = cb.parameter(Long.class, LAST_ID);
+
+        if(sort.equals(ID)) {
+            return direction.isAscending() ? cb.greaterThan(idPath, lastId) : cb.lessThan(idPath, lastId);
+        }
+
+        ParameterExpression<? extends Comparable<Object>> value = cb.parameter(sortPath.getJavaType(), LAST_VALUE);
+
+        if(direction.isAscending()) {
+            return cb.and(cb.greaterThanOrEqualTo(sortPath, value),
+                cb.or(cb.greaterThan(sortPath, value), cb.greaterThan(idPath, lastId)));
+        }
+
+        return cb.and(cb.lessThanOrEqualTo(sortPath, value),
+            cb.or(cb.lessThan(sortPath, value), cb.lessThan(idPath, lastId)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Comparable<Object> parseValue(Class<?> javaType, String value) throws InvalidCursorException {
+        try {
+            if(javaType == Long.class) {
+                return (Comparable) Long.valueOf(value);
+            }
+            if(javaType == Integer.class) {
+                return (Comparable) Integer.valueOf(value);
+            }
+            if(javaType == LocalDate.class) {
+                return (Comparable) LocalDate.parse(value);
+            }
+            return (Comparable) value;
+        } catch (RuntimeException ex) {
+            throw new InvalidCursorException("Malformed cursor value", ex);
+        }
+    }
+    //endregion
+
+}
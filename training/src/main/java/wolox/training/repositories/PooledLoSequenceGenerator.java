@@ -0,0 +1,37 @@
+package wolox.training.repositories;
+
+import java.util.Map;
+import java.util.Properties;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence based id generator using the pooled-lo optimizer: every {@code nextval} reserves a block of
+ * {@value #DEFAULT_ALLOCATION_SIZE} ids starting at the returned value, so inserts only go to the sequence
+ * once per block. A writer calling {@code nextval} on its own just takes the first id of a fresh block, so
+ * it never collides with ids handed out here.
+ * The sequence must be incremented by at least the allocation size, see the V5 migration.
+ */
+public class PooledLoSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "hibernate.id.allocation_size";
+
+    private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+
+        params.setProperty(INCREMENT_PARAM,
+            String.valueOf(ConfigurationHelper.getInt(ALLOCATION_SIZE_SETTING, settings, DEFAULT_ALLOCATION_SIZE)));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+
+        super.configure(type, params, serviceRegistry);
+    }
+
+}
@@ -0,0 +1,77 @@
+package wolox.training.repositories;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+/**
+ * Runs a {@link Specification} as a plain list query. Unlike {@code JpaSpecificationExecutor#findAll(Specification, Pageable)}
+ * no count query is issued, matching what the previous {@code @Query} list methods did.
+ */
+class SpecificationQueries {
+
+    private final EntityManager entityManager;
+
+    SpecificationQueries(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @param type entity to list
+     * @param specification filters, or null to list everything
+     * @param pageable page and sort to apply, may be null or unpaged
+     * @return the matching rows of the requested page
+     */
+    <T> List<T> list(Class<T> type, Specification<T> specification, Pageable pageable) {
+        return list(type, specification, pageable, null);
+    }
+
+    /**
+     * @param type entity to list
+     * @param specification filters, or null to list everything
+     * @param pageable page and sort to apply, may be null or unpaged
+     * @param cacheRegion query cache region to keep the results in, or null to always hit the database
+     * @return the matching rows of the requested page
+     */
+    <T> List<T> list(Class<T> type, Specification<T> specification, Pageable pageable, String cacheRegion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        query.select(root);
+
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, cb);
+
+        if(predicate != null) {
+            query.where(predicate);
+        }
+
+        if(pageable != null && pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query);
+
+        if(pageable != null && pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+
+        if(cacheRegion != null) {
+            typedQuery.setHint(HINT_CACHEABLE, true);
+            typedQuery.setHint(HINT_CACHE_REGION, cacheRegion);
+        }
+
+        return typedQuery.getResultList();
+    }
+
+}
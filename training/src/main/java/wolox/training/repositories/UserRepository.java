@@ -2,7 +2,9 @@ package wolox.training.repositories;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -10,15 +12,35 @@ import org.springframework.stereotype.Component;
 import wolox.training.models.User;
 
 @Component
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends CrudRepository<User, Long>, UserRepositoryCustom {
 
     public User findFirstByUsername(String username);
 
-    @Query(value="SELECT u FROM Users u WHERE (cast(:fromDate as date) is null OR u.birthdate >= :fromDate) AND (cast(:toDate as date) is null OR u.birthdate <= :toDate) AND (:characters is null OR u.name LIKE %:characters%)")
-    public List<User> findByBirthdateBetweenAndNameContains(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate, @Param("characters") String characters, Pageable pageable);
+    /**
+     * Loads the user together with its books in one query, for the reads that render the whole library.
+     * Writes go through the plain {@link #findById}, which leaves the books to be loaded if needed.
+     * @param id
+     * @return the user, with its books initialized
+     */
+    @EntityGraph(attributePaths = "books")
+    public Optional<User> findWithBooksById(Long id);
 
-    @Query(value="SELECT u FROM Users u")
-    public List<User> findAllUsers(Pageable pageable);
+    /**
+     * @param id
+     * @return the user's {@link User#getVersionTag()}, aggregated in the database instead of loading the user
+     * and its books
+     */
+    @Query(value = "SELECT u.version || '.' || COALESCE(md5(string_agg(b.id || ':' || b.version, ',' ORDER BY b.id)), '') "
+        + "FROM users u LEFT JOIN users_books ub ON ub.users_id = u.id LEFT JOIN book b ON b.id = ub.books_id "
+        + "WHERE u.id = :id GROUP BY u.id, u.version", nativeQuery = true)
+    public Optional<String> findVersionTagById(@Param("id") Long id);
 
+    public default List<User> findByBirthdateBetweenAndNameContains(LocalDate fromDate, LocalDate toDate, String characters, Pageable pageable) {
+        return findMatching(UserSpecifications.bornBetweenAndNameContains(fromDate, toDate, characters), pageable);
+    }
+
+    public default List<User> findAllUsers(Pageable pageable) {
+        return findMatching(null, pageable);
+    }
 
 }
@@ -0,0 +1,53 @@
+package wolox.training.repositories;
+
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import wolox.training.exceptions.BookAlreadyOwnedException;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.InvalidCursorException;
+import wolox.training.exceptions.UserNotFoundException;
+import wolox.training.models.CursorPage;
+import wolox.training.models.User;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Lists the users matching the specification, without running a count query.
+     * @param specification see {@link UserSpecifications}, null matches every user
+     * @param pageable may be null
+     * @return the requested page of users
+     */
+    public List<User> findMatching(Specification<User> specification, Pageable pageable);
+
+    /**
+     * Keyset paginated listing of every user.
+     * @param sort one of id, name, username or birthdate
+     * @param direction
+     * @param cursor the previous page's {@code nextCursor}, or null for the first page
+     * @param size
+     * @return the page
+     */
+    public CursorPage<User> seek(String sort, Direction direction, String cursor, int size) throws InvalidCursorException;
+
+    /**
+     * Adds the book to the user's library with a single statement, without loading either of them.
+     * @param userId
+     * @param bookId
+     * @throws UserNotFoundException if there is no such user
+     * @throws BookNotFoundException if there is no such book
+     * @throws BookAlreadyOwnedException if the user already owns the book
+     */
+    public void addBook(Long userId, Long bookId) throws UserNotFoundException, BookNotFoundException, BookAlreadyOwnedException;
+
+    /**
+     * Removes the book from the user's library with a single statement, without loading either of them.
+     * @param userId
+     * @param bookId
+     * @throws UserNotFoundException if there is no such user
+     * @throws BookNotFoundException if the user does not own the book
+     */
+    public void removeBook(Long userId, Long bookId) throws UserNotFoundException, BookNotFoundException;
+
+}
@@ -0,0 +1,140 @@
+package wolox.training.repositories;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+import wolox.training.exceptions.BookAlreadyOwnedException;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.InvalidCursorException;
+import wolox.training.exceptions.UserNotFoundException;
+import wolox.training.models.CursorPage;
+import wolox.training.models.User;
+
+/**
+ * Listings load a page of users first and then the books of the whole page with a single fetch join, so
+ * serializing a page runs two queries instead of one per user. Adding and removing books writes the join
+ * row directly, so its cost does not depend on the size of the user's library.
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    // each backed by an index on (column, id), see V8__keyset_indexes.sql
+    private static final HashSet<String> SORTABLE_ATTRIBUTES =
+        new HashSet<>(Arrays.asList("id", "name", "username", "birthdate"));
+
+    // inserts nothing when the user or the book does not exist, or when the user already owns the book.
+    // The user's version is bumped in the same statement, as Hibernate does when the collection changes,
+    // and the update count is the number of rows inserted
+    private static final String ADD_BOOK_QUERY = "WITH added AS (INSERT INTO users_books (users_id, books_id) "
+        + "SELECT u.id, b.id FROM users u, book b WHERE u.id = :userId AND b.id = :bookId "
+        + "ON CONFLICT DO NOTHING RETURNING users_id) "
+        + "UPDATE users SET version = version + 1 WHERE id IN (SELECT users_id FROM added)";
+
+    private static final String REMOVE_BOOK_QUERY = "WITH removed AS (DELETE FROM users_books "
+        + "WHERE users_id = :userId AND books_id = :bookId RETURNING users_id) "
+        + "UPDATE users SET version = version + 1 WHERE id IN (SELECT users_id FROM removed)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> findMatching(Specification<User> specification, Pageable pageable) {
+        return fetchBooks(new SpecificationQueries(entityManager).list(User.class, specification, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<User> seek(String sort, Direction direction, String cursor, int size) throws InvalidCursorException {
+        CursorPage<User> page = new KeysetPaginator(entityManager, SORTABLE_ATTRIBUTES)
+            .seek(User.class, null, sort, direction, cursor, size);
+        fetchBooks(page.getContent());
+
+        return page;
+    }
+
+    @Override
+    @Transactional
+    public void addBook(Long userId, Long bookId) throws UserNotFoundException, BookNotFoundException, BookAlreadyOwnedException {
+        int inserted = libraryUpdate(ADD_BOOK_QUERY)
+            .setParameter("userId", userId)
+            .setParameter("bookId", bookId)
+            .executeUpdate();
+
+        if(inserted == 0) {
+            // only failed calls pay for finding out why
+            if(!exists("Users", userId)) {
+                throw new UserNotFoundException();
+            }
+
+            if(!exists("Book", bookId)) {
+                throw new BookNotFoundException();
+            }
+
+            throw new BookAlreadyOwnedException("This user already has the book");
+        }
+    }
+
+    @Override
+    @Transactional
+    public void removeBook(Long userId, Long bookId) throws UserNotFoundException, BookNotFoundException {
+        int deleted = libraryUpdate(REMOVE_BOOK_QUERY)
+            .setParameter("userId", userId)
+            .setParameter("bookId", bookId)
+            .executeUpdate();
+
+        if(deleted == 0) {
+            if(!exists("Users", userId)) {
+                throw new UserNotFoundException();
+            }
+
+            throw new BookNotFoundException("This user does not own the book you are trying to delete");
+        }
+    }
+
+    //region private methods
+    /**
+     * Declares the tables the statement writes, otherwise Hibernate empties every second-level cache region,
+     * cached books included, on each call.
+     */
+    private Query libraryUpdate(String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace("users_books")
+            .addSynchronizedQuerySpace("users");
+    }
+
+    private boolean exists(String entityName, Long id) {
+        return entityManager.createQuery("SELECT COUNT(e) FROM " + entityName + " e WHERE e.id = :id", Long.class)
+            .setParameter("id", id)
+            .getSingleResult() > 0;
+    }
+
+    /**
+     * Initializes the books of every given user with one query. The users are managed by the same persistence
+     * context, which the callers' transaction guarantees, so the fetch join fills their collections in place
+     * and the list keeps its order.
+     * @param users
+     * @return the same users
+     */
+    private List<User> fetchBooks(List<User> users) {
+        if(!users.isEmpty()) {
+            List<Long> ids = users.stream().map(User::getId).collect(Collectors.toList());
+
+            entityManager.createQuery("SELECT DISTINCT u FROM Users u LEFT JOIN FETCH u.books WHERE u.id IN :ids", User.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        }
+
+        return users;
+    }
+    //endregion
+
+}
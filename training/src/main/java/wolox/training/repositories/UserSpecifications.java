@@ -0,0 +1,46 @@
+package wolox.training.repositories;
+
+import java.time.LocalDate;
+import org.springframework.data.jpa.domain.Specification;
+import wolox.training.models.User;
+
+/**
+ * User filters that only add a predicate for the values actually given.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+
+    }
+
+    public static Specification<User> bornOnOrAfter(LocalDate fromDate) {
+        if(fromDate == null) {
+            return null;
+        }
+
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("birthdate"), fromDate);
+    }
+
+    public static Specification<User> bornOnOrBefore(LocalDate toDate) {
+        if(toDate == null) {
+            return null;
+        }
+
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("birthdate"), toDate);
+    }
+
+    public static Specification<User> nameContains(String characters) {
+        if(characters == null) {
+            return null;
+        }
+
+        return (root, query, cb) -> cb.like(root.get("name"), "%" + characters + "%");
+    }
+
+    public static Specification<User> bornBetweenAndNameContains(LocalDate fromDate, LocalDate toDate, String characters) {
+        return Specification.where(bornOnOrAfter(fromDate))
+            .and(bornOnOrBefore(toDate))
+            .and(nameContains(characters));
+    }
+
+}
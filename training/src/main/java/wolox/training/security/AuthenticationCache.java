@@ -0,0 +1,75 @@
+package wolox.training.security;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers credentials that were already verified against BCrypt so repeated HTTP Basic requests
+ * only pay for an HMAC. Entries are keyed by username and hold a keyed digest of the password,
+ * never the password itself.
+ */
+@Component
+public class AuthenticationCache {
+
+    @Value("${security.auth-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${security.auth-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Clock clock = Clock.systemUTC();
+
+    private HashFunction digest;
+
+    private Cache<String, byte[]> verifiedCredentials;
+
+    @PostConstruct
+    public void init() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        digest = Hashing.hmacSha256(key);
+
+        verifiedCredentials = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .ticker(new Ticker() {
+                @Override
+                public long read() {
+                    return TimeUnit.MILLISECONDS.toNanos(clock.millis());
+                }
+            })
+            .build();
+    }
+
+    public boolean isVerified(String username, String password) {
+        byte[] cached = verifiedCredentials.getIfPresent(username);
+
+        return cached != null && MessageDigest.isEqual(cached, digestOf(password));
+    }
+
+    public void markVerified(String username, String password) {
+        verifiedCredentials.put(username, digestOf(password));
+    }
+
+    public void invalidate(String username) {
+        if(username != null) {
+            verifiedCredentials.invalidate(username);
+        }
+    }
+
+    private byte[] digestOf(String password) {
+        return digest.hashString(password, StandardCharsets.UTF_8).asBytes();
+    }
+
+}
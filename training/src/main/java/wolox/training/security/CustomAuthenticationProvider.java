@@ -3,14 +3,16 @@ package wolox.training.security;
 import java.util.ArrayList;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.stereotype.Component;
+import wolox.training.exceptions.PasswordHashingUnavailableException;
 import wolox.training.models.User;
 import wolox.training.repositories.UserRepository;
+import wolox.training.services.PasswordHashingService;
 
 @Component
 public class CustomAuthenticationProvider implements AuthenticationProvider {
@@ -19,6 +21,12 @@ public class CustomAuthenticationProvider implements AuthenticationProvider {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
     @Override
     public Authentication authenticate(Authentication authentication)
         throws AuthenticationException {
@@ -26,9 +34,15 @@ public class CustomAuthenticationProvider implements AuthenticationProvider {
         String username = authentication.getName();
         String password = authentication.getCredentials().toString();
 
+        if (authenticationCache.isVerified(username, password)) {
+            return new UsernamePasswordAuthenticationToken(
+                username, password, new ArrayList<>());
+        }
+
         User user = userRepository.findFirstByUsername(username);
 
-        if (user!=null && BCrypt.checkpw(password, user.getPassword())) {
+        if (user!=null && passwordMatches(password, user.getPassword())) {
+            authenticationCache.markVerified(username, password);
 
             return new UsernamePasswordAuthenticationToken(
                 username, password, new ArrayList<>());
@@ -37,6 +51,14 @@ public class CustomAuthenticationProvider implements AuthenticationProvider {
         }
     }
 
+    private boolean passwordMatches(String password, String encodedPassword) {
+        try {
+            return passwordHashingService.matches(password, encodedPassword);
+        } catch (PasswordHashingUnavailableException ex) {
+            throw new AuthenticationServiceException(ex.getMessage(), ex);
+        }
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return authentication.equals(UsernamePasswordAuthenticationToken.class);
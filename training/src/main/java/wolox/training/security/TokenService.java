@@ -0,0 +1,162 @@
+package wolox.training.security;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import wolox.training.models.AuthToken;
+
+/**
+ * Issues and verifies bearer tokens of the form {@code payload.signature}, where the payload is
+ * {@code username:issuedAt:expiresAt} and the signature is its HMAC-SHA256. Verification is done in memory:
+ * besides the signature and expiry it only checks the issue time against the last revocation of the user,
+ * recorded when its password or username changes or it is deleted. Revocations are kept per instance, only
+ * for as long as a token lives, so behind several instances the TTL bounds how long a revoked token works.
+ */
+@Component
+public class TokenService {
+
+    private static final String SEPARATOR = ".";
+
+    @Value("${security.token.secret:}")
+    private String secret;
+
+    @Value("${security.token.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    private Clock clock = Clock.systemUTC();
+
+    private HashFunction signer;
+
+    // username -> epoch millis before which its tokens are revoked
+    private Cache<String, Long> revocations;
+
+    @PostConstruct
+    public void init() {
+        byte[] key;
+
+        if(secret == null || secret.isEmpty()) {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+
+        signer = Hashing.hmacSha256(key);
+
+        // kept a second past the TTL, as expiry is checked in whole seconds; not capped by size, since dropping
+        // a revocation early would bring its tokens back
+        revocations = CacheBuilder.newBuilder()
+            .expireAfterWrite(ttlSeconds + 1, TimeUnit.SECONDS)
+            .ticker(new Ticker() {
+                @Override
+                public long read() {
+                    return TimeUnit.MILLISECONDS.toNanos(clock.millis());
+                }
+            })
+            .build();
+    }
+
+    /**
+     * @param username of a user that was just authenticated
+     * @return a token valid until the TTL runs out or the user's tokens are revoked
+     */
+    public AuthToken issue(String username) {
+        long issuedAt = clock.millis();
+        long expiresAt = Instant.now(clock).getEpochSecond() + ttlSeconds;
+        byte[] payload = (username + ":" + issuedAt + ":" + expiresAt).getBytes(StandardCharsets.UTF_8);
+
+        String token = encode(payload) + SEPARATOR + encode(sign(payload));
+
+        return new AuthToken(token, expiresAt);
+    }
+
+    /**
+     * @param token bearer token previously returned by {@link #issue(String)}
+     * @return the username the token was issued to, or null if it is malformed, tampered, expired or revoked
+     */
+    public String verify(String token) {
+        int separatorIndex = token.indexOf(SEPARATOR);
+
+        if(separatorIndex < 0) {
+            return null;
+        }
+
+        byte[] payload;
+        byte[] signature;
+
+        try {
+            payload = Base64.getUrlDecoder().decode(token.substring(0, separatorIndex));
+            signature = Base64.getUrlDecoder().decode(token.substring(separatorIndex + 1));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+
+        if(!MessageDigest.isEqual(signature, sign(payload))) {
+            return null;
+        }
+
+        // usernames may contain colons, the other claims cannot
+        String claims = new String(payload, StandardCharsets.UTF_8);
+        int expiresAtIndex = claims.lastIndexOf(':');
+        int issuedAtIndex = expiresAtIndex > 0 ? claims.lastIndexOf(':', expiresAtIndex - 1) : -1;
+
+        if(issuedAtIndex < 0) {
+            return null;
+        }
+
+        String username = claims.substring(0, issuedAtIndex);
+
+        try {
+            long issuedAt = Long.parseLong(claims.substring(issuedAtIndex + 1, expiresAtIndex));
+            long expiresAt = Long.parseLong(claims.substring(expiresAtIndex + 1));
+
+            if(expiresAt < Instant.now(clock).getEpochSecond()) {
+                return null;
+            }
+
+            Long revokedAt = revocations.getIfPresent(username);
+
+            if(revokedAt != null && issuedAt <= revokedAt) {
+                return null;
+            }
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+
+        return username;
+    }
+
+    /**
+     * Rejects every token issued to the user until now. Called once a change of its password or username, or
+     * its deletion, is committed.
+     * @param username
+     */
+    public void revoke(String username) {
+        if(username != null) {
+            revocations.put(username, clock.millis());
+        }
+    }
+
+    //region private methods
+    private byte[] sign(byte[] payload) {
+        return signer.hashBytes(payload).asBytes();
+    }
+
+    private String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+    //endregion
+
+}
@@ -0,0 +1,118 @@
+package wolox.training.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import wolox.training.models.Book;
+import wolox.training.repositories.BookRepository;
+
+/**
+ * Writes the whole catalog to a stream. Books are read through a database cursor, written and detached one
+ * at a time, so memory use does not grow with the size of the catalog.
+ */
+@Service
+public class BookExportService {
+
+    private static final String[] CSV_HEADER =
+        {"id", "isbn", "title", "subtitle", "author", "publisher", "year", "pages", "genre", "image"};
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * @param format
+     * @param outputStream left open
+     */
+    @Transactional(readOnly = true)
+    public void export(CatalogFormat format, OutputStream outputStream) throws IOException {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            if(format == CatalogFormat.CSV) {
+                writeCsv(books, outputStream);
+            } else {
+                writeNdjson(books, outputStream);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    //region private methods
+    private void writeNdjson(Stream<Book> books, OutputStream outputStream) throws IOException {
+        // flushing after every book would send a packet per row
+        ObjectWriter writer = objectMapper.writerFor(Book.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            books.forEach(book -> {
+                try {
+                    writer.writeValue(generator, book);
+                    generator.writeRaw('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                entityManager.detach(book);
+            });
+        }
+    }
+
+    private void writeCsv(Stream<Book> books, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        writeCsvLine(writer, CSV_HEADER);
+        books.forEach(book -> {
+            try {
+                writeCsvLine(writer, String.valueOf(book.getId()), book.getIsbn(), book.getTitle(), book.getSubtitle(),
+                    book.getAuthor(), book.getPublisher(), book.getYear(), String.valueOf(book.getPages()), book.getGenre(),
+                    book.getImage());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            entityManager.detach(book);
+        });
+
+        writer.flush();
+    }
+
+    private void writeCsvLine(Writer writer, String... values) throws IOException {
+        writer.write(Arrays.stream(values).map(this::csvField).collect(Collectors.joining(",")));
+        writer.write("\r\n");
+    }
+
+    private String csvField(String value) {
+        if(value == null) {
+            return "";
+        }
+
+        if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    //endregion
+
+}
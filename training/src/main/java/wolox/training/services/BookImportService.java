@@ -0,0 +1,346 @@
+package wolox.training.services;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import wolox.training.exceptions.BookLookupRejectedException;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.ConnectionFailedException;
+import wolox.training.exceptions.NullAttributesException;
+import wolox.training.exceptions.TooManyIsbnsException;
+import wolox.training.exceptions.UnableToCreateBookFromDTOException;
+import wolox.training.exceptions.UnableToReadBookFromAPIException;
+import wolox.training.models.Book;
+import wolox.training.models.BookDTO;
+import wolox.training.models.IsbnImportResult;
+import wolox.training.models.IsbnImportResult.Status;
+import wolox.training.repositories.BookRepository;
+
+/**
+ * Imports books from OpenLibrary by ISBN. Concurrent imports of the same ISBN are coalesced: the first
+ * caller fetches and persists the book, every other caller waits for and shares that result.
+ * Asynchronous lookups run on their own bounded pool and take part in the same coalescing; when that
+ * pool's queue is full new lookups are rejected at once instead of queueing behind a slow upstream.
+ * Bulk imports fetch several ISBNs per upstream request on a small pool and persist each batch with a
+ * single {@code saveAll}, so Hibernate can group the inserts into JDBC batches.
+ */
+@Service
+public class BookImportService {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OpenLibraryService openLibraryService;
+
+    @Autowired
+    private BookSearchEngine bookSearchEngine;
+
+    @Value("${openlibrary.import.max-isbns:5000}")
+    private int maxIsbns;
+
+    @Value("${openlibrary.import.batch-size:50}")
+    private int batchSize;
+
+    @Value("${openlibrary.import.concurrency:4}")
+    private int concurrency;
+
+    @Value("${openlibrary.lookup.threads:8}")
+    private int lookupThreads;
+
+    @Value("${openlibrary.lookup.queue-capacity:100}")
+    private int lookupQueueCapacity;
+
+    private final ConcurrentMap<String, CompletableFuture<Book>> inFlight = new ConcurrentHashMap<>();
+
+    private ExecutorService importExecutor;
+
+    private ThreadPoolExecutor lookupExecutor;
+
+    @PostConstruct
+    public void init() {
+        importExecutor = Executors.newFixedThreadPool(concurrency,
+            new ThreadFactoryBuilder().setNameFormat("openlibrary-import-%d").setDaemon(true).build());
+        lookupExecutor = new ThreadPoolExecutor(lookupThreads, lookupThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(lookupQueueCapacity),
+            new ThreadFactoryBuilder().setNameFormat("openlibrary-lookup-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+        lookupExecutor.shutdownNow();
+    }
+
+    public Book importByIsbn(String isbn)
+        throws IOException, ConnectionFailedException, BookNotFoundException, UnableToReadBookFromAPIException, UnableToCreateBookFromDTOException, NullAttributesException {
+
+        CompletableFuture<Book> flight = new CompletableFuture<>();
+        CompletableFuture<Book> leader = inFlight.putIfAbsent(isbn, flight);
+
+        if(leader != null) {
+            return await(leader);
+        }
+
+        lead(isbn, flight);
+
+        return await(flight);
+    }
+
+    /**
+     * Same as {@link #importByIsbn(String)} but the fetch runs on the lookup pool, so the calling thread is
+     * released right away.
+     * @param isbn
+     * @return a future completed with the imported book, or with the exception {@link #importByIsbn(String)} would throw
+     * @throws BookLookupRejectedException if the lookup pool cannot take more work
+     */
+    public CompletableFuture<Book> importByIsbnAsync(String isbn) throws BookLookupRejectedException {
+        CompletableFuture<Book> flight = new CompletableFuture<>();
+        CompletableFuture<Book> leader = inFlight.putIfAbsent(isbn, flight);
+
+        if(leader != null) {
+            return leader;
+        }
+
+        try {
+            lookupExecutor.execute(() -> lead(isbn, flight));
+        } catch (RejectedExecutionException ex) {
+            BookLookupRejectedException rejected = new BookLookupRejectedException();
+            flight.completeExceptionally(rejected);
+            inFlight.remove(isbn, flight);
+            throw rejected;
+        }
+
+        return flight;
+    }
+
+    public void checkImportSize(Collection<String> isbns) throws TooManyIsbnsException {
+        if(isbns.size() > maxIsbns) {
+            throw new TooManyIsbnsException("At most " + maxIsbns + " ISBNs can be imported at once");
+        }
+    }
+
+    /**
+     * Imports every given ISBN, reporting one result per distinct ISBN to the listener as soon as it is known.
+     * Books already stored are found with a single query and reported as existing; the rest are requested
+     * from OpenLibrary in concurrent batches and persisted on the calling thread as each batch arrives.
+     * @param isbns
+     * @param listener receives the results, always from the calling thread
+     */
+    public void importAll(Collection<String> isbns, Consumer<IsbnImportResult> listener)
+        throws TooManyIsbnsException, InterruptedException {
+
+        Set<String> pending = new LinkedHashSet<>(isbns);
+        checkImportSize(pending);
+
+        if(pending.isEmpty()) {
+            return;
+        }
+
+        for(Book book : bookRepository.findByIsbnIn(pending)) {
+            if(pending.remove(book.getIsbn())) {
+                listener.accept(IsbnImportResult.of(book, Status.EXISTING));
+            }
+        }
+
+        CompletionService<FetchedBatch> completionService = new ExecutorCompletionService<>(importExecutor);
+        List<List<String>> batches = Lists.partition(new ArrayList<>(pending), batchSize);
+
+        for(List<String> batch : batches) {
+            completionService.submit(() -> fetchBatch(batch));
+        }
+
+        for(int i = 0; i < batches.size(); i++) {
+            try {
+                persistBatch(completionService.take().get(), listener);
+            } catch (ExecutionException ex) {
+                // fetchBatch never throws, anything else is a bug worth surfacing
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+    }
+
+    //region private methods
+    private void lead(String isbn, CompletableFuture<Book> flight) {
+        try {
+            flight.complete(fetchAndPersist(isbn));
+        } catch (Exception ex) {
+            flight.completeExceptionally(ex);
+        } finally {
+            inFlight.remove(isbn, flight);
+        }
+    }
+
+    private FetchedBatch fetchBatch(List<String> isbns) {
+        try {
+            return new FetchedBatch(isbns, openLibraryService.bookInfos(isbns), null);
+        } catch (Exception ex) {
+            return new FetchedBatch(isbns, Collections.emptyMap(), ex);
+        }
+    }
+
+    private void persistBatch(FetchedBatch fetched, Consumer<IsbnImportResult> listener) {
+        List<Book> books = new ArrayList<>();
+
+        for(String isbn : fetched.isbns) {
+            if(fetched.error != null) {
+                listener.accept(IsbnImportResult.failed(isbn, Status.FAILED, fetched.error.getMessage()));
+                continue;
+            }
+
+            BookDTO bookDTO = fetched.bookDTOs.get(isbn);
+
+            if(bookDTO == null) {
+                listener.accept(IsbnImportResult.failed(isbn, Status.NOT_FOUND, null));
+                continue;
+            }
+
+            try {
+                Book book = new Book(bookDTO);
+
+                if(book.anyRequiredAttributeNull()) {
+                    listener.accept(IsbnImportResult.failed(isbn, Status.FAILED, "Missing attributes"));
+                } else {
+                    books.add(book);
+                }
+            } catch (UnableToCreateBookFromDTOException ex) {
+                listener.accept(IsbnImportResult.failed(isbn, Status.FAILED, ex.getMessage()));
+            }
+        }
+
+        if(books.isEmpty()) {
+            return;
+        }
+
+        try {
+            bookRepository.saveAll(books).forEach(book -> {
+                bookSearchEngine.index(book);
+                listener.accept(IsbnImportResult.of(book, Status.CREATED));
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // some ISBN was inserted concurrently, the whole batch rolled back: retry one by one
+            books.forEach(book -> listener.accept(persistOne(book)));
+        }
+    }
+
+    private IsbnImportResult persistOne(Book book) {
+        try {
+            Book saved = bookRepository.save(book);
+            bookSearchEngine.index(saved);
+
+            return IsbnImportResult.of(saved, Status.CREATED);
+        } catch (DataIntegrityViolationException ex) {
+            return bookRepository.findByIsbn(book.getIsbn())
+                .map(existing -> IsbnImportResult.of(existing, Status.EXISTING))
+                .orElseGet(() -> IsbnImportResult.failed(book.getIsbn(), Status.FAILED, ex.getMessage()));
+        }
+    }
+
+    private Book fetchAndPersist(String isbn)
+        throws IOException, ConnectionFailedException, BookNotFoundException, UnableToReadBookFromAPIException, UnableToCreateBookFromDTOException, NullAttributesException {
+
+        Optional<Book> existing = bookRepository.findByIsbn(isbn);
+
+        if(existing.isPresent()) {
+            return existing.get();
+        }
+
+        Book book = new Book(openLibraryService.bookInfo(isbn));
+
+        if(book.anyRequiredAttributeNull()) {
+            throw new NullAttributesException();
+        }
+
+        try {
+            Book saved = bookRepository.save(book);
+            bookSearchEngine.index(saved);
+
+            return saved;
+        } catch (DataIntegrityViolationException ex) {
+            // another instance inserted the same ISBN first, uk_book_isbn kept it to a single row
+            return bookRepository.findByIsbn(isbn).orElseThrow(() -> ex);
+        }
+    }
+
+    private Book await(CompletableFuture<Book> flight)
+        throws IOException, ConnectionFailedException, BookNotFoundException, UnableToReadBookFromAPIException, UnableToCreateBookFromDTOException, NullAttributesException {
+
+        try {
+            return flight.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the import of the book", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if(cause instanceof ConnectionFailedException) {
+                throw (ConnectionFailedException) cause;
+            }
+            if(cause instanceof BookNotFoundException) {
+                throw (BookNotFoundException) cause;
+            }
+            if(cause instanceof UnableToReadBookFromAPIException) {
+                throw (UnableToReadBookFromAPIException) cause;
+            }
+            if(cause instanceof UnableToCreateBookFromDTOException) {
+                throw (UnableToCreateBookFromDTOException) cause;
+            }
+            if(cause instanceof NullAttributesException) {
+                throw (NullAttributesException) cause;
+            }
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+    //endregion
+
+    private static class FetchedBatch {
+
+        private final List<String> isbns;
+
+        private final Map<String, BookDTO> bookDTOs;
+
+        private final Exception error;
+
+        private FetchedBatch(List<String> isbns, Map<String, BookDTO> bookDTOs, Exception error) {
+            this.isbns = isbns;
+            this.bookDTOs = bookDTOs;
+            this.error = error;
+        }
+
+    }
+
+}
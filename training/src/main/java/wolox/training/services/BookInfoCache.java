@@ -0,0 +1,169 @@
+package wolox.training.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.models.BookDTO;
+import wolox.training.models.CachedBookInfo;
+import wolox.training.repositories.CachedBookInfoRepository;
+
+/**
+ * Two tier cache for OpenLibrary lookups. The first tier is an in-process LRU with a TTL; the
+ * optional second tier is the {@code book_info_cache} table, which keeps the cache warm across
+ * restarts. ISBNs OpenLibrary does not know are cached too, with their own (shorter) TTL.
+ */
+@Component
+public class BookInfoCache {
+
+    @Autowired
+    private CachedBookInfoRepository cachedBookInfoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${openlibrary.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${openlibrary.cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${openlibrary.cache.negative-ttl-minutes:60}")
+    private long negativeTtlMinutes;
+
+    @Value("${openlibrary.cache.persistent.enabled:false}")
+    private boolean persistentEnabled;
+
+    private Clock clock = Clock.systemUTC();
+
+    private Cache<String, BookDTO> found;
+
+    private Cache<String, Boolean> notFound;
+
+    private Counter persistentHits;
+
+    private Counter persistentMisses;
+
+    @PostConstruct
+    public void init() {
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return TimeUnit.MILLISECONDS.toNanos(clock.millis());
+            }
+        };
+
+        found = GuavaCacheMetrics.monitor(meterRegistry, CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+            .ticker(ticker)
+            .recordStats()
+            .<String, BookDTO>build(), "openlibrary.books");
+
+        notFound = GuavaCacheMetrics.monitor(meterRegistry, CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(negativeTtlMinutes, TimeUnit.MINUTES)
+            .ticker(ticker)
+            .recordStats()
+            .<String, Boolean>build(), "openlibrary.books.notfound");
+
+        persistentHits = meterRegistry.counter("openlibrary.books.persistent", "result", "hit");
+        persistentMisses = meterRegistry.counter("openlibrary.books.persistent", "result", "miss");
+    }
+
+    /**
+     * @param isbn
+     * @return the cached book info, or null if the ISBN has not been looked up recently
+     * @throws BookNotFoundException if the ISBN is cached as unknown to OpenLibrary
+     */
+    public BookDTO get(String isbn) throws BookNotFoundException {
+        BookDTO bookDTO = found.getIfPresent(isbn);
+
+        if(bookDTO != null) {
+            return bookDTO;
+        }
+
+        if(notFound.getIfPresent(isbn) != null) {
+            throw new BookNotFoundException();
+        }
+
+        if(!persistentEnabled) {
+            return null;
+        }
+
+        return getPersistent(isbn);
+    }
+
+    public void put(String isbn, BookDTO bookDTO) {
+        found.put(isbn, bookDTO);
+
+        if(persistentEnabled) {
+            try {
+                cachedBookInfoRepository.save(new CachedBookInfo(isbn, objectMapper.writeValueAsString(bookDTO), true, Instant.now(clock)));
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Could not serialize book info for " + isbn, ex);
+            }
+        }
+    }
+
+    public void putNotFound(String isbn) {
+        notFound.put(isbn, Boolean.TRUE);
+
+        if(persistentEnabled) {
+            cachedBookInfoRepository.save(new CachedBookInfo(isbn, null, false, Instant.now(clock)));
+        }
+    }
+
+    //region private methods
+    private BookDTO getPersistent(String isbn) throws BookNotFoundException {
+        Optional<CachedBookInfo> cached = cachedBookInfoRepository.findById(isbn);
+
+        if(!cached.isPresent() || isExpired(cached.get())) {
+            persistentMisses.increment();
+            return null;
+        }
+
+        persistentHits.increment();
+
+        if(!cached.get().getFound()) {
+            notFound.put(isbn, Boolean.TRUE);
+            throw new BookNotFoundException();
+        }
+
+        BookDTO bookDTO;
+
+        try {
+            bookDTO = objectMapper.readValue(cached.get().getPayload(), BookDTO.class);
+        } catch (IOException ex) {
+            return null;
+        }
+
+        found.put(isbn, bookDTO);
+        return bookDTO;
+    }
+
+    private boolean isExpired(CachedBookInfo cached) {
+        long ttl = cached.getFound() ? ttlMinutes : negativeTtlMinutes;
+        return cached.getFetchedAt().plus(Duration.ofMinutes(ttl)).isBefore(Instant.now(clock));
+    }
+    //endregion
+
+}
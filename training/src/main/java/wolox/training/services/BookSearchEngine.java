@@ -0,0 +1,32 @@
+package wolox.training.services;
+
+import java.util.List;
+import wolox.training.models.Book;
+
+/**
+ * Ranked full-text search over book titles, subtitles, authors and publishers. Query terms match words by
+ * prefix, and engines may also accept close misspellings. Every term must match for a book to be returned.
+ * Selected with the {@code search.engine} property: {@code postgres} (default) or {@code memory}.
+ */
+public interface BookSearchEngine {
+
+    /**
+     * @param query free text
+     * @param limit maximum number of books to return
+     * @return the matching books, best match first
+     */
+    List<Book> search(String query, int limit);
+
+    /**
+     * Makes a new or updated book searchable. Engines that index on write in the database may ignore it.
+     * @param book
+     */
+    void index(Book book);
+
+    /**
+     * Stops returning a deleted book.
+     * @param bookId
+     */
+    void remove(Long bookId);
+
+}
@@ -0,0 +1,381 @@
+package wolox.training.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import wolox.training.models.Book;
+import wolox.training.models.BulkItemResult;
+import wolox.training.models.BulkItemResult.Status;
+import wolox.training.models.UploadProgress;
+
+/**
+ * Loads books from a CSV or newline delimited JSON upload. Rows are parsed as they arrive and validated one by
+ * one; valid rows are written in batches, one transaction per batch, by copying them into a temporary table
+ * with PostgreSQL's {@code COPY} and moving them into {@code book} with a single insert that skips ISBNs
+ * already stored. Only the current batch is held in memory, and a bad row is reported without stopping the
+ * upload.
+ */
+@Service
+public class BookUploadService {
+
+    private static final String CREATE_STAGING_TABLE =
+        "CREATE TEMPORARY TABLE IF NOT EXISTS book_upload (LIKE book INCLUDING DEFAULTS) ON COMMIT DELETE ROWS";
+
+    private static final String COLUMNS = "id, author, genre, image, isbn, pages, publisher, subtitle, title, year";
+
+    private static final String COPY_TO_STAGING_TABLE = "COPY book_upload (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    // ON CONFLICT also skips an ISBN repeated inside the batch, only its first row is inserted
+    private static final String INSERT_FROM_STAGING_TABLE = "INSERT INTO book (" + COLUMNS + ") SELECT " + COLUMNS
+        + " FROM book_upload ORDER BY id ON CONFLICT (isbn) DO NOTHING";
+
+    // the ids are fresh from the sequence, so a staged id found in book is a row this batch inserted
+    private static final String INSERTED_IDS = "SELECT u.id FROM book_upload u JOIN book b ON b.id = u.id";
+
+    private static final List<String> REQUIRED_COLUMNS =
+        Arrays.asList("isbn", "title", "subtitle", "author", "publisher", "year", "pages", "image");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookSearchEngine bookSearchEngine;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${upload.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${upload.csv.max-field-length:" + CsvReader.DEFAULT_MAX_FIELD_LENGTH + "}")
+    private int maxFieldLength;
+
+    @Value("${upload.csv.max-record-length:" + CsvReader.DEFAULT_MAX_RECORD_LENGTH + "}")
+    private int maxRecordLength;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Reads the whole upload. CSV needs a header row naming the columns, in any order, as written by
+     * {@link BookExportService}; an id column is ignored. Empty CSV fields are read as null.
+     * @param format
+     * @param inputStream left open
+     * @param rejected receives every row that was not inserted, indexed by its position among the data rows
+     * @param progress receives the totals after every batch and once more, marked as done, at the end
+     */
+    public void upload(CatalogFormat format, InputStream inputStream, Consumer<BulkItemResult> rejected,
+        Consumer<UploadProgress> progress) {
+
+        Upload upload = new Upload(rejected, progress);
+
+        if(format == CatalogFormat.CSV) {
+            readCsv(inputStream, upload);
+        } else {
+            readNdjson(inputStream, upload);
+        }
+
+        upload.finish();
+    }
+
+    //region private methods
+    private void readNdjson(InputStream inputStream, Upload upload) {
+        MappingIterator<Book> books;
+
+        try {
+            books = objectMapper.readerFor(Book.class).readValues(inputStream);
+        } catch (IOException ex) {
+            upload.stop(ex.getMessage());
+            return;
+        }
+
+        for(int index = 0; ; index++) {
+            try {
+                if(!books.hasNextValue()) {
+                    return;
+                }
+
+                upload.accept(index, books.nextValue());
+            } catch (JsonMappingException ex) {
+                upload.reject(index, Status.INVALID, ex.getOriginalMessage());
+            } catch (JsonProcessingException ex) {
+                upload.reject(index, Status.INVALID, ex.getOriginalMessage());
+                upload.stop(ex.getOriginalMessage());
+                return;
+            } catch (IOException ex) {
+                upload.stop(ex.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void readCsv(InputStream inputStream, Upload upload) {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)),
+            maxFieldLength, maxRecordLength);
+        Map<String, Integer> columns = new HashMap<>();
+
+        try {
+            List<String> header = reader.readRecord();
+
+            if(header == null) {
+                return;
+            }
+
+            for(int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(), i);
+            }
+        } catch (IOException ex) {
+            upload.stop(ex.getMessage());
+            return;
+        }
+
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !columns.containsKey(column))
+            .collect(Collectors.toList());
+
+        if(!missing.isEmpty()) {
+            upload.stop("Missing columns: " + String.join(", ", missing));
+            return;
+        }
+
+        for(int index = 0; ; index++) {
+            List<String> record;
+
+            try {
+                record = reader.readRecord();
+            } catch (IOException ex) {
+                upload.reject(index, Status.INVALID, ex.getMessage());
+                upload.stop(ex.getMessage());
+                return;
+            }
+
+            if(record == null) {
+                return;
+            }
+
+            if(record.size() == 1 && record.get(0).isEmpty()) {
+                index--;
+                continue;
+            }
+
+            try {
+                upload.accept(index, toBook(record, columns));
+            } catch (IllegalArgumentException | NullPointerException ex) {
+                upload.reject(index, Status.INVALID, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Builds the book through its constructor, so the row goes through the same checks as any other book.
+     */
+    private Book toBook(List<String> record, Map<String, Integer> columns) {
+        String pages = field(record, columns, "pages");
+
+        return new Book(field(record, columns, "author"), field(record, columns, "image"), field(record, columns, "title"),
+            field(record, columns, "subtitle"), field(record, columns, "publisher"), field(record, columns, "year"),
+            pages != null ? Integer.valueOf(pages.trim()) : null, field(record, columns, "isbn"),
+            field(record, columns, "genre"));
+    }
+
+    private String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer position = columns.get(column);
+
+        if(position == null || position >= record.size() || record.get(position).isEmpty()) {
+            return null;
+        }
+
+        return record.get(position);
+    }
+
+    /**
+     * Gives every book an id from the entity's own generator, so uploaded books draw from the same pooled
+     * blocks as books saved through Hibernate, and writes them through the staging table.
+     * @return ids of the books inserted; the others had an ISBN that was already stored
+     */
+    private Set<Long> insert(List<Book> books) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Book.class);
+
+        for(Book book : books) {
+            persister.setIdentifier(book, persister.getIdentifierGenerator().generate(session, book), session);
+        }
+
+        session.doWork(connection -> copyToStagingTable(connection, books));
+
+        // through Hibernate and declared as writing books, so the cached book queries are invalidated with it
+        entityManager.createNativeQuery(INSERT_FROM_STAGING_TABLE).unwrap(NativeQuery.class)
+            .addSynchronizedEntityClass(Book.class)
+            .executeUpdate();
+
+        List<?> ids = entityManager.createNativeQuery(INSERTED_IDS).getResultList();
+
+        return ids.stream().map(id -> ((Number) id).longValue()).collect(Collectors.toSet());
+    }
+
+    private void copyToStagingTable(Connection connection, List<Book> books) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_TABLE);
+            // rows left by an enclosing transaction that has not committed yet
+            statement.execute("TRUNCATE book_upload");
+        }
+
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_TO_STAGING_TABLE);
+
+        try {
+            for(Book book : books) {
+                byte[] line = copyLine(book).getBytes(StandardCharsets.UTF_8);
+                copyIn.writeToCopy(line, 0, line.length);
+            }
+            copyIn.endCopy();
+        } finally {
+            if(copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private String copyLine(Book book) {
+        return Arrays.stream(new String[] {String.valueOf(book.getId()), book.getAuthor(), book.getGenre(),
+                book.getImage(), book.getIsbn(), String.valueOf(book.getPages()), book.getPublisher(), book.getSubtitle(),
+                book.getTitle(), book.getYear()})
+            .map(this::copyField)
+            .collect(Collectors.joining(",", "", "\n"));
+    }
+
+    /**
+     * COPY reads an unquoted empty field as null, so every value is quoted and only null is left empty.
+     */
+    private String copyField(String value) {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+    //endregion
+
+    private class Upload {
+
+        private final Consumer<BulkItemResult> rejected;
+
+        private final Consumer<UploadProgress> progress;
+
+        private final List<Book> batch = new ArrayList<>();
+
+        private final List<Integer> indexes = new ArrayList<>();
+
+        private int rows;
+
+        private int created;
+
+        private int rejectedRows;
+
+        private String error;
+
+        private Upload(Consumer<BulkItemResult> rejected, Consumer<UploadProgress> progress) {
+            this.rejected = rejected;
+            this.progress = progress;
+        }
+
+        private void accept(int index, Book book) {
+            if(book.anyRequiredAttributeNull()) {
+                reject(index, Status.INVALID, "Missing attributes");
+                return;
+            }
+
+            rows++;
+            batch.add(book);
+            indexes.add(index);
+
+            if(batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void reject(int index, Status status, String message) {
+            rows++;
+            rejectedRows++;
+            rejected.accept(BulkItemResult.failed(status, null, message).atIndex(index));
+        }
+
+        private void stop(String message) {
+            error = message;
+        }
+
+        private void finish() {
+            if(!batch.isEmpty()) {
+                flush();
+            }
+
+            progress.accept(new UploadProgress(rows, created, rejectedRows, true, error));
+        }
+
+        private void flush() {
+            Set<Long> inserted = null;
+            String failure = null;
+
+            try {
+                inserted = transactionTemplate.execute(status -> insert(batch));
+            } catch (DataAccessException | PersistenceException ex) {
+                failure = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+            }
+
+            for(int i = 0; i < batch.size(); i++) {
+                Book book = batch.get(i);
+
+                if(inserted == null) {
+                    rejectedRows++;
+                    rejected.accept(BulkItemResult.failed(Status.FAILED, null, failure).atIndex(indexes.get(i)));
+                } else if(inserted.contains(book.getId())) {
+                    created++;
+                    bookSearchEngine.index(book);
+                } else {
+                    rejectedRows++;
+                    rejected.accept(BulkItemResult.failed(Status.EXISTING, null, "ISBN already exists").atIndex(indexes.get(i)));
+                }
+            }
+
+            batch.clear();
+            indexes.clear();
+            progress.accept(new UploadProgress(rows, created, rejectedRows, false, null));
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+package wolox.training.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import wolox.training.models.BulkItemResult;
+import wolox.training.models.BulkItemResult.Status;
+
+/**
+ * Applies the items of a bulk request in chunks, one transaction per chunk. Each chunk is flushed once, so
+ * the statements it queues go out as JDBC batches, and then cleared, so memory stays flat however long the
+ * request is. When a chunk cannot be committed its items are applied again one per transaction, so a bad
+ * item only fails itself.
+ */
+@Service
+public class BulkProcessor {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${bulk.chunk-size:500}")
+    private int chunkSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Reads the items as they arrive and applies them chunk by chunk.
+     * @param items a JSON array or newline delimited JSON, both are read the same way
+     * @param handler applies a chunk inside its transaction and returns one result per item, in order.
+     * It must not modify the items, they are applied again one by one if the chunk fails.
+     * @return one result per item, ordered by index. Items that cannot be read are reported as invalid;
+     * when the input is not well formed reading stops there.
+     */
+    public <T> List<BulkItemResult> process(MappingIterator<T> items, Function<List<T>, List<BulkItemResult>> handler)
+        throws IOException {
+
+        return process(items, Function.identity(), handler);
+    }
+
+    /**
+     * Same as {@link #process(MappingIterator, Function)}, but every chunk goes through {@code prepare} first,
+     * outside of the transaction. Slow work that needs no database, such as hashing passwords, belongs there
+     * so it does not keep the chunk's transaction, and the row locks it takes, open. It does not free the
+     * connection: with open-in-view the request's session holds on to it once the first chunk acquired it.
+     * @param items
+     * @param prepare turns a chunk into what the handler applies, one element per item and in the same order
+     * @param handler
+     * @return one result per item, ordered by index
+     */
+    public <T, R> List<BulkItemResult> process(MappingIterator<T> items, Function<List<T>, List<R>> prepare,
+        Function<List<R>, List<BulkItemResult>> handler) throws IOException {
+
+        List<BulkItemResult> results = new ArrayList<>();
+        List<T> chunk = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+
+        for(int index = 0; ; index++) {
+            try {
+                if(!items.hasNextValue()) {
+                    break;
+                }
+
+                chunk.add(items.nextValue());
+                indexes.add(index);
+            } catch (JsonMappingException ex) {
+                results.add(BulkItemResult.failed(Status.INVALID, null, ex.getOriginalMessage()).atIndex(index));
+            } catch (JsonProcessingException ex) {
+                results.add(BulkItemResult.failed(Status.INVALID, null, ex.getOriginalMessage()).atIndex(index));
+                break;
+            }
+
+            if(chunk.size() == chunkSize) {
+                results.addAll(applyChunk(prepare.apply(chunk), indexes, handler));
+                chunk.clear();
+                indexes.clear();
+            }
+        }
+
+        if(!chunk.isEmpty()) {
+            results.addAll(applyChunk(prepare.apply(chunk), indexes, handler));
+        }
+
+        results.sort(Comparator.comparingInt(BulkItemResult::getIndex));
+
+        return results;
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away when there is none. Handlers use
+     * it for side effects that must not happen for items that end up rolled back.
+     * @param action
+     */
+    public static void afterCommit(Runnable action) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    //region private methods
+    private <T> List<BulkItemResult> applyChunk(List<T> chunk, List<Integer> indexes, Function<List<T>, List<BulkItemResult>> handler) {
+        List<BulkItemResult> applied;
+
+        try {
+            applied = apply(chunk, handler);
+        } catch (DataAccessException | PersistenceException ex) {
+            // the whole chunk rolled back, find out which items were to blame
+            applied = new ArrayList<>();
+
+            for(T item : chunk) {
+                try {
+                    applied.addAll(apply(Collections.singletonList(item), handler));
+                } catch (DataAccessException | PersistenceException itemEx) {
+                    applied.add(BulkItemResult.failed(Status.FAILED, null, NestedExceptionUtils.getMostSpecificCause(itemEx).getMessage()));
+                }
+            }
+        }
+
+        List<BulkItemResult> results = new ArrayList<>();
+
+        for(int i = 0; i < applied.size(); i++) {
+            results.add(applied.get(i).atIndex(indexes.get(i)));
+        }
+
+        return results;
+    }
+
+    private <T> List<BulkItemResult> apply(List<T> items, Function<List<T>, List<BulkItemResult>> handler) {
+        return transactionTemplate.execute(status -> {
+            List<BulkItemResult> results = handler.apply(items);
+            entityManager.flush();
+            entityManager.clear();
+
+            return results;
+        });
+    }
+    //endregion
+
+}
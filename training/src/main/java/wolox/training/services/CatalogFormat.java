@@ -0,0 +1,21 @@
+package wolox.training.services;
+
+/**
+ * File formats the catalog can be exported to and uploaded from.
+ */
+public enum CatalogFormat {
+
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    CatalogFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+}
@@ -0,0 +1,66 @@
+package wolox.training.services;
+
+import java.time.Clock;
+
+/**
+ * Minimal circuit breaker. After {@code failureThreshold} consecutive failures it opens and rejects
+ * calls for {@code openMillis}; then it lets a single trial call through and closes again if that
+ * call succeeds. A trial that records no outcome within {@code openMillis} is given up, and the next
+ * call becomes a new trial.
+ */
+public class CircuitBreaker {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    // when the circuit opened, or when the current trial started
+    private long changedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, Clock.systemUTC());
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMillis, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    public synchronized boolean allowRequest() {
+        if(state != State.CLOSED && clock.millis() - changedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            changedAt = clock.millis();
+            return true;
+        }
+
+        return state == State.CLOSED;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+
+        if(state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            changedAt = clock.millis();
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+}
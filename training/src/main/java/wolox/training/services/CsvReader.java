@@ -0,0 +1,111 @@
+package wolox.training.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time. Quoted fields may hold commas, doubled quotes and line breaks;
+ * records end with either CRLF or LF. Fields and records are capped in length, otherwise a single open
+ * quote would buffer the rest of the input.
+ */
+class CsvReader {
+
+    static final int DEFAULT_MAX_FIELD_LENGTH = 8 * 1024;
+
+    static final int DEFAULT_MAX_RECORD_LENGTH = 64 * 1024;
+
+    private final Reader reader;
+
+    private final int maxFieldLength;
+
+    private final int maxRecordLength;
+
+    private boolean ended;
+
+    CsvReader(Reader reader) {
+        this(reader, DEFAULT_MAX_FIELD_LENGTH, DEFAULT_MAX_RECORD_LENGTH);
+    }
+
+    /**
+     * @param reader
+     * @param maxFieldLength characters a field may hold, after unquoting
+     * @param maxRecordLength characters a record may span, separators and quotes included
+     */
+    CsvReader(Reader reader, int maxFieldLength, int maxRecordLength) {
+        this.reader = reader;
+        this.maxFieldLength = maxFieldLength;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    /**
+     * @return the fields of the next record, or null once the input is over
+     * @throws IOException if the input cannot be read, a quoted field is never closed or a field or the
+     * record is longer than allowed
+     */
+    List<String> readRecord() throws IOException {
+        if(ended) {
+            return null;
+        }
+
+        int c = reader.read();
+
+        if(c == -1) {
+            ended = true;
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStart = true;
+        int recordLength = 0;
+
+        while(true) {
+            if(++recordLength > maxRecordLength) {
+                throw new IOException("Record longer than " + maxRecordLength + " characters");
+            }
+
+            if(field.length() > maxFieldLength) {
+                throw new IOException("Field longer than " + maxFieldLength + " characters");
+            }
+
+            if(quoted) {
+                if(c == -1) {
+                    throw new IOException("Unterminated quoted field");
+                }
+
+                if(c == '"') {
+                    c = reader.read();
+
+                    if(c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                    recordLength++;
+                }
+
+                field.append((char) c);
+            } else if(c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if(c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+            } else if(c == '\n' || c == -1) {
+                ended = c == -1;
+                fields.add(field.toString());
+
+                return fields;
+            } else if(c != '\r') {
+                field.append((char) c);
+                fieldStart = false;
+            }
+
+            c = reader.read();
+        }
+    }
+
+}
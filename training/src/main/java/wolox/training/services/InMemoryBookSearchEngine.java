@@ -0,0 +1,231 @@
+package wolox.training.services;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import wolox.training.models.Book;
+import wolox.training.repositories.BookRepository;
+
+/**
+ * Inverted index kept in memory, for tests and deployments small enough to hold every book. Words are kept
+ * sorted so prefixes are a range lookup; misspellings are found by bounded edit distance over the vocabulary.
+ * The index is loaded from the database on startup and updated through {@link #index(Book)} and {@link #remove(Long)}.
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "memory")
+public class InMemoryBookSearchEngine implements BookSearchEngine {
+
+    private static final int TITLE_WEIGHT = 4;
+    private static final int AUTHOR_WEIGHT = 3;
+    private static final int SUBTITLE_WEIGHT = 2;
+    private static final int PUBLISHER_WEIGHT = 1;
+
+    private static final double EXACT_MATCH = 1.0;
+    private static final double PREFIX_MATCH = 0.75;
+    private static final double FUZZY_MATCH = 0.5;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Book> books = new HashMap<>();
+
+    /**
+     * word to the books containing it, with the weight of the most relevant field it appears in
+     */
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    private final Map<Long, Set<String>> wordsByBook = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        bookRepository.findAll().forEach(this::index);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        List<String> terms = SearchTerms.of(query);
+
+        if(terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+
+            for(String term : terms) {
+                Map<Long, Double> termScores = score(term);
+
+                if(scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+            }
+
+            return scores.entrySet().stream()
+                .sorted(InMemoryBookSearchEngine::byScoreThenId)
+                .limit(limit)
+                .map(entry -> books.get(entry.getKey()))
+                .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        Map<String, Integer> weights = new HashMap<>();
+        addWords(weights, book.getTitle(), TITLE_WEIGHT);
+        addWords(weights, book.getAuthor(), AUTHOR_WEIGHT);
+        addWords(weights, book.getSubtitle(), SUBTITLE_WEIGHT);
+        addWords(weights, book.getPublisher(), PUBLISHER_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            unindex(book.getId());
+
+            books.put(book.getId(), book);
+            wordsByBook.put(book.getId(), new HashSet<>(weights.keySet()));
+            weights.forEach((word, weight) -> postings.computeIfAbsent(word, w -> new HashMap<>()).put(book.getId(), weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            unindex(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //region private methods
+    private static int byScoreThenId(Entry<Long, Double> a, Entry<Long, Double> b) {
+        int byScore = Double.compare(b.getValue(), a.getValue());
+
+        return byScore != 0 ? byScore : Long.compare(a.getKey(), b.getKey());
+    }
+
+    private void addWords(Map<String, Integer> weights, String text, int weight) {
+        for(String word : SearchTerms.of(text)) {
+            weights.merge(word, weight, Math::max);
+        }
+    }
+
+    private void unindex(Long bookId) {
+        Set<String> words = wordsByBook.remove(bookId);
+        books.remove(bookId);
+
+        if(words == null) {
+            return;
+        }
+
+        for(String word : words) {
+            Map<Long, Integer> bookWeights = postings.get(word);
+            bookWeights.remove(bookId);
+
+            if(bookWeights.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * @param term
+     * @return for every book matching the term, its best weight times how closely the word matched
+     */
+    private Map<Long, Double> score(String term) {
+        Map<Long, Double> scores = new HashMap<>();
+
+        for(Entry<String, Map<Long, Integer>> posting : postings.subMap(term, true, term + Character.MAX_VALUE, true).entrySet()) {
+            addScores(scores, posting.getValue(), posting.getKey().equals(term) ? EXACT_MATCH : PREFIX_MATCH);
+        }
+
+        int maxEdits = maxEdits(term);
+
+        if(maxEdits > 0) {
+            for(Entry<String, Map<Long, Integer>> posting : postings.entrySet()) {
+                String word = posting.getKey();
+
+                if(!word.startsWith(term) && withinEditDistance(term, word, maxEdits)) {
+                    addScores(scores, posting.getValue(), FUZZY_MATCH);
+                }
+            }
+        }
+
+        return scores;
+    }
+
+    private void addScores(Map<Long, Double> scores, Map<Long, Integer> bookWeights, double match) {
+        bookWeights.forEach((bookId, weight) -> scores.merge(bookId, weight * match, Math::max));
+    }
+
+    /**
+     * short words tolerate no typos, so "cat" does not also match "bat", "car" and "cut"
+     */
+    private int maxEdits(String term) {
+        if(term.length() >= 8) {
+            return 2;
+        }
+
+        return term.length() >= 4 ? 1 : 0;
+    }
+
+    /**
+     * Levenshtein distance between a and b, giving up as soon as it is known to exceed maxEdits.
+     */
+    private boolean withinEditDistance(String a, String b, int maxEdits) {
+        if(Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+
+        for(int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for(int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+
+            for(int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j] + 1, current[j - 1] + 1));
+                rowMin = Math.min(rowMin, current[j]);
+            }
+
+            if(rowMin > maxEdits) {
+                return false;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[b.length()] <= maxEdits;
+    }
+    //endregion
+
+}
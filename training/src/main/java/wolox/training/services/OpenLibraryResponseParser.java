@@ -0,0 +1,167 @@
+package wolox.training.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import wolox.training.models.BookDTO;
+
+/**
+ * Reads an OpenLibrary {@code api/books?jscmd=data} response token by token, straight from the response
+ * stream into {@link BookDTO}s. Only the attributes a book needs are materialized, everything else is
+ * skipped without being built.
+ */
+public class OpenLibraryResponseParser {
+
+    private static final String ISBN_PREFIX = "ISBN:";
+
+    private final JsonFactory jsonFactory;
+
+    public OpenLibraryResponseParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * @param inputStream UTF-8 response body, not closed by this method
+     * @return the books in the response keyed by ISBN, in response order. Missing attributes are left null.
+     */
+    public Map<String, BookDTO> parse(InputStream inputStream) throws IOException {
+        Map<String, BookDTO> bookDTOs = new LinkedHashMap<>();
+
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            if(parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object from OpenLibrary");
+            }
+
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String bibkey = parser.getCurrentName();
+                String isbn = bibkey.startsWith(ISBN_PREFIX) ? bibkey.substring(ISBN_PREFIX.length()) : bibkey;
+
+                if(parser.nextToken() == JsonToken.START_OBJECT) {
+                    bookDTOs.put(isbn, readBook(parser, isbn));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return bookDTOs;
+    }
+
+    //region private methods
+    private BookDTO readBook(JsonParser parser, String isbn) throws IOException {
+        BookDTO bookDTO = new BookDTO();
+        bookDTO.setISBN(isbn);
+
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "title":
+                    bookDTO.setTitle(readString(parser));
+                    break;
+                case "subtitle":
+                    bookDTO.setSubtitle(readString(parser));
+                    break;
+                case "publishers":
+                    bookDTO.setPublishers(readNames(parser, "name"));
+                    break;
+                case "number_of_pages":
+                    bookDTO.setNumberOfPages(readInteger(parser));
+                    break;
+                case "publish_date":
+                    bookDTO.setPublishDate(readString(parser));
+                    break;
+                case "authors":
+                    bookDTO.setAuthors(readNames(parser, "name"));
+                    break;
+                case "cover":
+                    bookDTO.setImage(readField(parser, "small"));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return bookDTO;
+    }
+
+    private String readString(JsonParser parser) throws IOException {
+        if(parser.currentToken().isScalarValue()) {
+            return parser.getValueAsString();
+        }
+
+        parser.skipChildren();
+        return null;
+    }
+
+    private Integer readInteger(JsonParser parser) throws IOException {
+        if(parser.currentToken().isNumeric()) {
+            return parser.getValueAsInt();
+        }
+
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * reads a single string property of the object the parser is positioned on, skipping the rest of it
+     * @param parser
+     * @param propertyName
+     * @return the property value, or null if it is missing or the current value is not an object
+     */
+    private String readField(JsonParser parser, String propertyName) throws IOException {
+        if(parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        String value = null;
+
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            if(propertyName.equals(field)) {
+                value = readString(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * given a property name and an array of objects, returns the values of that property
+     * @param parser
+     * @param propertyName
+     * @return list of string values for the given property, or null if the current value is not an array
+     */
+    private List<String> readNames(JsonParser parser, String propertyName) throws IOException {
+        if(parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+
+        List<String> names = new ArrayList<>();
+
+        while(parser.nextToken() != JsonToken.END_ARRAY) {
+            String name = readField(parser, propertyName);
+
+            if(name != null) {
+                names.add(name);
+            }
+        }
+
+        return names;
+    }
+    //endregion
+
+}
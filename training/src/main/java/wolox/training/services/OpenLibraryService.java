@@ -1,105 +1,228 @@
 package wolox.training.services;
 
-import java.io.BufferedReader;
+import com.fasterxml.jackson.core.JsonFactory;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import wolox.training.exceptions.BookNotFoundException;
 import wolox.training.exceptions.ConnectionFailedException;
+import wolox.training.exceptions.OpenLibraryUnavailableException;
 import wolox.training.exceptions.UnableToReadBookFromAPIException;
 import wolox.training.models.BookDTO;
 
 @Service
 public class OpenLibraryService {
 
-    public BookDTO bookInfo(String isbn)
-        throws IOException, JSONException, ConnectionFailedException, BookNotFoundException, UnableToReadBookFromAPIException {
+    @Autowired
+    private BookInfoCache bookInfoCache;
 
-        BookDTO bookDTO;
+    @Value("${openlibrary.base-url:https://openlibrary.org}")
+    private String baseUrl;
 
-        URL url = new URL(String.format("https://openlibrary.org/api/books?bibkeys=ISBN:%s&format=json&jscmd=data", isbn));
-        HttpURLConnection con = (HttpURLConnection) url.openConnection();
-        con.setRequestMethod("GET");
+    @Value("${openlibrary.http.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
 
-        if(con.getResponseCode()!=HttpURLConnection.HTTP_OK){
-            throw new ConnectionFailedException(con.getResponseCode(), con.getResponseMessage());
-        }
+    @Value("${openlibrary.http.read-timeout-ms:5000}")
+    private int readTimeoutMs;
 
-        String response = getResponseString(con.getInputStream());
+    @Value("${openlibrary.http.pool-timeout-ms:1000}")
+    private int poolTimeoutMs;
 
-        JSONObject jo = new JSONObject(response);
+    @Value("${openlibrary.http.max-connections:50}")
+    private int maxConnections;
 
+    @Value("${openlibrary.http.max-connections-per-route:20}")
+    private int maxConnectionsPerRoute;
 
+    @Value("${openlibrary.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
 
-        if(jo.keys().hasNext()) {
-            throw new BookNotFoundException();
-        }
+    @Value("${openlibrary.circuit-breaker.open-ms:30000}")
+    private long openMillis;
 
-        jo = (JSONObject) jo.get("ISBN:" + isbn);
+    private Clock clock = Clock.systemUTC();
 
-        bookDTO = createBookDTO(jo, isbn);
+    private CloseableHttpClient httpClient;
 
-        return bookDTO;
+    private CircuitBreaker circuitBreaker;
+
+    private OpenLibraryResponseParser responseParser;
+
+    @PostConstruct
+    public void init() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(connectTimeoutMs)
+            .setSocketTimeout(readTimeoutMs)
+            .setConnectionRequestTimeout(poolTimeoutMs)
+            .build();
+
+        httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .evictIdleConnections(30, TimeUnit.SECONDS)
+            .build();
+
+        circuitBreaker = new CircuitBreaker(failureThreshold, openMillis, clock);
+        responseParser = new OpenLibraryResponseParser(new JsonFactory());
     }
 
-    //region private  methods
-    private String getResponseString(InputStream is) throws IOException {
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
 
-        String line;
-        BufferedReader br = new BufferedReader(new InputStreamReader(is));
-        StringBuffer response = new StringBuffer();
+    public BookDTO bookInfo(String isbn)
+        throws IOException, ConnectionFailedException, BookNotFoundException, UnableToReadBookFromAPIException {
+
+        BookDTO bookDTO = bookInfoCache.get(isbn);
+
+        if(bookDTO != null) {
+            return bookDTO;
+        }
+
+        bookDTO = fetch("ISBN:" + isbn).get(isbn);
 
-        while((line = br.readLine()) !=null ) {
-            response.append(line);
+        if(bookDTO == null) {
+            bookInfoCache.putNotFound(isbn);
+            throw new BookNotFoundException();
         }
 
-        br.close();
+        checkComplete(bookDTO);
+        bookInfoCache.put(isbn, bookDTO);
 
-        return response.toString();
+        return bookDTO;
     }
 
-    private BookDTO createBookDTO(JSONObject jo, String isbn) throws UnableToReadBookFromAPIException {
-        BookDTO bookDTO = new BookDTO();
-
-        try {
-            bookDTO.setISBN(isbn);
-            bookDTO.setTitle(jo.getString("title"));
-            bookDTO.setSubtitle(jo.getString("subtitle"));
-            bookDTO.setPublishers(fromJsonArrayToNamesList(jo.getJSONArray("publishers"), "name"));
-            bookDTO.setNumberOfPages(jo.getInt("number_of_pages"));
-            bookDTO.setPublishDate(jo.getString("publish_date"));
-            bookDTO.setAuthors(fromJsonArrayToNamesList(jo.getJSONArray("authors"), "name"));
-            bookDTO.setImage(jo.getJSONObject("cover").getString("small"));
-        }catch (Exception ex){
-            throw new UnableToReadBookFromAPIException(ex.getMessage());
+    /**
+     * Looks up several ISBNs with a single request to OpenLibrary's multi bibkey API.
+     * @param isbns
+     * @return the book info of every ISBN OpenLibrary knows about, keyed by ISBN. Unknown ISBNs are left out.
+     * Entries with missing attributes are returned as read, so the caller can report them per ISBN.
+     */
+    public Map<String, BookDTO> bookInfos(Collection<String> isbns) throws IOException, ConnectionFailedException {
+        Map<String, BookDTO> bookDTOs = new HashMap<>();
+        List<String> bibkeys = new ArrayList<>();
+
+        for(String isbn : isbns) {
+            try {
+                BookDTO cached = bookInfoCache.get(isbn);
+
+                if(cached != null) {
+                    bookDTOs.put(isbn, cached);
+                } else {
+                    bibkeys.add("ISBN:" + isbn);
+                }
+            } catch (BookNotFoundException ex) {
+                // cached as unknown to OpenLibrary
+            }
         }
 
-        return bookDTO;
+        if(bibkeys.isEmpty()) {
+            return bookDTOs;
+        }
+
+        Map<String, BookDTO> fetched = fetch(String.join(",", bibkeys));
+
+        for(String bibkey : bibkeys) {
+            String isbn = bibkey.substring("ISBN:".length());
+            BookDTO bookDTO = fetched.get(isbn);
+
+            if(bookDTO == null) {
+                bookInfoCache.putNotFound(isbn);
+                continue;
+            }
+
+            bookDTOs.put(isbn, bookDTO);
+
+            if(isComplete(bookDTO)) {
+                bookInfoCache.put(isbn, bookDTO);
+            }
+        }
+
+        return bookDTOs;
     }
 
+    //region private  methods
+
     /**
-     * given a property name and a JsonArray with objects on it, returns a list of string values for the given property
-     * @param jsonArray
-     * @param propertyName
-     * @return list of string values for the given property
+     * Performs the request through the pooled client. Connection errors, timeouts, 5xx responses and bodies
+     * that cannot be parsed count as failures for the circuit breaker; while it is open no request reaches
+     * OpenLibrary. Every call that got through records an outcome, or a half open circuit would wait for it.
+     * @param bibkeys
+     * @return the books in the response keyed by ISBN, parsed while the body is being read
      */
-    private List<String> fromJsonArrayToNamesList(JSONArray jsonArray, String propertyName)
-        throws JSONException {
-        List<String> list = new ArrayList<>();
-        for(int i = 0; i<jsonArray.length(); i++){
-            JSONObject jo = jsonArray.getJSONObject(0);
-            list.add(jo.getString(propertyName));
+    private Map<String, BookDTO> fetch(String bibkeys) throws IOException, ConnectionFailedException {
+        if(!circuitBreaker.allowRequest()) {
+            throw new OpenLibraryUnavailableException();
+        }
+
+        HttpGet request = new HttpGet(String.format("%s/api/books?bibkeys=%s&format=json&jscmd=data", baseUrl,
+            URLEncoder.encode(bibkeys, StandardCharsets.UTF_8.name())));
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+
+            if(statusCode != HttpStatus.SC_OK) {
+                EntityUtils.consume(response.getEntity());
+
+                if(statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+                    circuitBreaker.recordFailure();
+                } else {
+                    circuitBreaker.recordSuccess();
+                }
+
+                throw new ConnectionFailedException(statusCode, response.getStatusLine().getReasonPhrase());
+            }
+
+            Map<String, BookDTO> bookDTOs;
+
+            try (InputStream body = response.getEntity().getContent()) {
+                bookDTOs = responseParser.parse(body);
+            }
+            circuitBreaker.recordSuccess();
+
+            return bookDTOs;
+        } catch (IOException | RuntimeException ex) {
+            circuitBreaker.recordFailure();
+            throw ex;
         }
+    }
 
-        return list;
+    private boolean isComplete(BookDTO bookDTO) {
+        return bookDTO.getTitle() != null && bookDTO.getSubtitle() != null && bookDTO.getPublishers() != null
+            && bookDTO.getNumberOfPages() != null && bookDTO.getPublishDate() != null && bookDTO.getAuthors() != null
+            && bookDTO.getImage() != null;
+    }
+
+    private void checkComplete(BookDTO bookDTO) throws UnableToReadBookFromAPIException {
+        if(!isComplete(bookDTO)) {
+            throw new UnableToReadBookFromAPIException("Missing attributes for ISBN " + bookDTO.getISBN());
+        }
     }
     //endregion
 
@@ -0,0 +1,124 @@
+package wolox.training.services;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import wolox.training.exceptions.PasswordHashingUnavailableException;
+
+/**
+ * Runs every BCrypt hash and verification on a small, bounded pool so a burst of logins or password
+ * changes cannot take over the request threads. Work that does not fit in the queue is rejected
+ * immediately instead of piling up.
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${security.password.bcrypt-strength:10}")
+    private int strength;
+
+    @Value("${security.password.hashing-threads:0}")
+    private int threads;
+
+    @Value("${security.password.hashing-queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${security.password.hashing-timeout-ms:5000}")
+    private long timeoutMs;
+
+    private PasswordEncoder passwordEncoder;
+
+    private ThreadPoolExecutor executor;
+
+    private Timer hashTimer;
+
+    private Timer matchTimer;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        passwordEncoder = new BCryptPasswordEncoder(strength);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new ThreadFactoryBuilder().setNameFormat("password-hashing-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.AbortPolicy());
+
+        hashTimer = Timer.builder("password.hashing").tag("operation", "hash").register(meterRegistry);
+        matchTimer = Timer.builder("password.hashing").tag("operation", "match").register(meterRegistry);
+        meterRegistry.gauge("password.hashing.queue.depth", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public String hash(String rawPassword) throws PasswordHashingUnavailableException {
+        return submit(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return passwordEncoder.encode(rawPassword);
+            } finally {
+                sample.stop(hashTimer);
+            }
+        });
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) throws PasswordHashingUnavailableException {
+        return submit(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                return passwordEncoder.matches(rawPassword, encodedPassword);
+            } finally {
+                sample.stop(matchTimer);
+            }
+        });
+    }
+
+    //region private methods
+    private <T> T submit(Callable<T> task) throws PasswordHashingUnavailableException {
+        Future<T> future;
+
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException ex) {
+            throw new PasswordHashingUnavailableException("Password hashing queue is full", ex);
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            throw new PasswordHashingUnavailableException("Password hashing timed out", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Interrupted while hashing password", ex);
+        } catch (ExecutionException ex) {
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new PasswordHashingUnavailableException(ex.getMessage(), ex.getCause());
+        }
+    }
+    //endregion
+
+}
@@ -0,0 +1,74 @@
+package wolox.training.services;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import wolox.training.models.Book;
+
+/**
+ * Searches the {@code book.search_vector} tsvector column, kept up to date by a trigger and indexed with GIN.
+ * Terms are matched by prefix and ranked with title over author over subtitle over publisher. When nothing
+ * matches, the query is retried as a trigram word similarity search on titles to tolerate typos.
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresBookSearchEngine implements BookSearchEngine {
+
+    private static final String FULL_TEXT_QUERY = "SELECT b.* FROM book b, to_tsquery('simple', :query) q "
+        + "WHERE b.search_vector @@ q ORDER BY ts_rank(b.search_vector, q) DESC, b.id LIMIT :limit";
+
+    // word similarity compares the text with the closest run of words in the title rather than the whole title
+    private static final String SIMILARITY_QUERY = "SELECT b.* FROM book b WHERE :text <% b.title "
+        + "ORDER BY word_similarity(:text, b.title) DESC, b.id LIMIT :limit";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${search.fuzzy-fallback:true}")
+    private boolean fuzzyFallback;
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<Book> search(String query, int limit) {
+        List<String> terms = SearchTerms.of(query);
+
+        if(terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // every term is a prefix match, the terms themselves are plain words so they need no escaping
+        String tsQuery = terms.stream().map(term -> term + ":*").collect(Collectors.joining(" & "));
+
+        List<Book> books = entityManager.createNativeQuery(FULL_TEXT_QUERY, Book.class)
+            .setParameter("query", tsQuery)
+            .setParameter("limit", limit)
+            .getResultList();
+
+        if(!books.isEmpty() || !fuzzyFallback) {
+            return books;
+        }
+
+        return entityManager.createNativeQuery(SIMILARITY_QUERY, Book.class)
+            .setParameter("text", String.join(" ", terms))
+            .setParameter("limit", limit)
+            .getResultList();
+    }
+
+    @Override
+    public void index(Book book) {
+        // maintained by the book_search_vector_trigger trigger
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        // the vector is deleted along with the row
+    }
+
+}
@@ -0,0 +1,37 @@
+package wolox.training.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits free text into lower case words, the unit both search engines index and query by. It matches what
+ * PostgreSQL's {@code simple} text search configuration produces for plain words.
+ */
+final class SearchTerms {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private SearchTerms() {
+
+    }
+
+    static List<String> of(String text) {
+        List<String> terms = new ArrayList<>();
+
+        if(text == null) {
+            return terms;
+        }
+
+        Matcher matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+
+        while(matcher.find()) {
+            terms.add(matcher.group());
+        }
+
+        return terms;
+    }
+
+}
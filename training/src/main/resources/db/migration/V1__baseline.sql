@@ -0,0 +1,34 @@
+-- Schema as previously generated by Hibernate (ddl-auto = update).
+-- Existing databases are baselined at this version and skip it, so everything added since goes in later versions.
+
+CREATE SEQUENCE IF NOT EXISTS hibernate_sequence START 1 INCREMENT 1;
+
+CREATE TABLE IF NOT EXISTS book (
+    id        BIGINT       NOT NULL,
+    author    VARCHAR(255) NOT NULL,
+    genre     VARCHAR(255),
+    image     VARCHAR(255) NOT NULL,
+    isbn      VARCHAR(255) NOT NULL,
+    pages     INTEGER      NOT NULL,
+    publisher VARCHAR(255) NOT NULL,
+    subtitle  VARCHAR(255) NOT NULL,
+    title     VARCHAR(255) NOT NULL,
+    year      VARCHAR(255) NOT NULL,
+    CONSTRAINT book_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id        BIGINT       NOT NULL,
+    birthdate DATE         NOT NULL,
+    name      VARCHAR(255) NOT NULL,
+    password  VARCHAR(60)  NOT NULL,
+    username  VARCHAR(255) NOT NULL,
+    CONSTRAINT users_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS users_books (
+    users_id BIGINT NOT NULL,
+    books_id BIGINT NOT NULL,
+    CONSTRAINT fk_users_books_users FOREIGN KEY (users_id) REFERENCES users (id),
+    CONSTRAINT fk_users_books_book FOREIGN KEY (books_id) REFERENCES book (id)
+);
@@ -0,0 +1,54 @@
+-- Indexes for the columns BookRepository and UserRepository filter on.
+
+-- one row per ISBN, which concurrent imports and the upload's ON CONFLICT (isbn) rely on. Nothing enforced it
+-- before, so fail with the offending ISBNs instead of a bare index error: merge those books, then run the
+-- migration again.
+DO $$
+DECLARE
+    duplicates text;
+BEGIN
+    SELECT string_agg(isbn, ', ') INTO duplicates
+    FROM (SELECT isbn FROM book GROUP BY isbn HAVING count(*) > 1) AS duplicated;
+
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'book.isbn must be unique before creating uk_book_isbn, duplicated: %', duplicates;
+    END IF;
+END
+$$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_book_isbn ON book (isbn);
+
+CREATE INDEX IF NOT EXISTS idx_book_author ON book (author);
+CREATE INDEX IF NOT EXISTS idx_book_title ON book (title);
+CREATE INDEX IF NOT EXISTS idx_book_genre ON book (genre);
+CREATE INDEX IF NOT EXISTS idx_book_year ON book (year);
+
+-- findByPublisherAndGenreAndYear; its leading column also serves publisher only filters
+CREATE INDEX IF NOT EXISTS idx_book_publisher_genre_year ON book (publisher, genre, year);
+
+-- looked up on every HTTP Basic authentication. Nothing enforced unique usernames before, so fail with the
+-- offending names instead of a bare index error: merge or rename those users, then run the migration again.
+DO $$
+DECLARE
+    duplicates text;
+BEGIN
+    SELECT string_agg(username, ', ') INTO duplicates
+    FROM (SELECT username FROM users GROUP BY username HAVING count(*) > 1) AS duplicated;
+
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'users.username must be unique before creating uk_users_username, duplicated: %', duplicates;
+    END IF;
+END
+$$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_users_username ON users (username);
+
+CREATE INDEX IF NOT EXISTS idx_users_birthdate ON users (birthdate);
+
+-- name LIKE '%characters%' cannot use a B-tree, a trigram index can
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users USING gin (name gin_trgm_ops);
+
+-- the join table is read from both sides: a user's books, and the owners of a book being deleted
+CREATE INDEX IF NOT EXISTS idx_users_books_users_id ON users_books (users_id);
+CREATE INDEX IF NOT EXISTS idx_users_books_books_id ON users_books (books_id);
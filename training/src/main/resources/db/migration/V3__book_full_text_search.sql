@@ -0,0 +1,27 @@
+-- Weighted full-text vector over title, author, subtitle and publisher, maintained on write.
+
+ALTER TABLE book ADD COLUMN IF NOT EXISTS search_vector TSVECTOR;
+
+CREATE OR REPLACE FUNCTION book_search_vector_update() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.search_vector :=
+        setweight(to_tsvector('simple', coalesce(NEW.title, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(NEW.author, '')), 'B') ||
+        setweight(to_tsvector('simple', coalesce(NEW.subtitle, '')), 'C') ||
+        setweight(to_tsvector('simple', coalesce(NEW.publisher, '')), 'D');
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS book_search_vector_trigger ON book;
+CREATE TRIGGER book_search_vector_trigger
+    BEFORE INSERT OR UPDATE OF title, author, subtitle, publisher ON book
+    FOR EACH ROW EXECUTE PROCEDURE book_search_vector_update();
+
+-- fires the trigger for the rows that already exist
+UPDATE book SET title = title;
+
+CREATE INDEX IF NOT EXISTS idx_book_search_vector ON book USING gin (search_vector);
+
+-- typo tolerant fallback on titles
+CREATE INDEX IF NOT EXISTS idx_book_title_trgm ON book USING gin (title gin_trgm_ops);
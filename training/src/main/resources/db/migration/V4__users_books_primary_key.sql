@@ -0,0 +1,12 @@
+-- A user owns a book at most once. Duplicated rows left by the old list mapping are dropped first.
+
+DELETE FROM users_books a
+    USING users_books b
+    WHERE a.ctid < b.ctid
+      AND a.users_id = b.users_id
+      AND a.books_id = b.books_id;
+
+ALTER TABLE users_books ADD CONSTRAINT pk_users_books PRIMARY KEY (users_id, books_id);
+
+-- The primary key leads with users_id and already serves lookups by user.
+DROP INDEX IF EXISTS idx_users_books_users_id;
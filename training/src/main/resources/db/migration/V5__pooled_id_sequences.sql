@@ -0,0 +1,9 @@
+-- One sequence per table handing out blocks of 50 ids, so Hibernate can batch inserts without asking
+-- for every id. Its pooled-lo optimizer takes nextval as the bottom of its block, so the sequence only has to
+-- start right past the current ids.
+
+CREATE SEQUENCE IF NOT EXISTS book_seq START 1 INCREMENT 50;
+CREATE SEQUENCE IF NOT EXISTS users_seq START 1 INCREMENT 50;
+
+SELECT setval('book_seq', COALESCE((SELECT MAX(id) FROM book), 0) + 1, false);
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 1, false);
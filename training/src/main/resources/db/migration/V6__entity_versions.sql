@@ -0,0 +1,6 @@
+-- Optimistic locking versions, also the source of the ETags of books and users.
+-- Existing rows start at 0, as Hibernate does for new ones.
+
+ALTER TABLE book ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
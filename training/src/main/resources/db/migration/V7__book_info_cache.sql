@@ -0,0 +1,9 @@
+-- Persistent tier of BookInfoCache: OpenLibrary answers by ISBN, found or not, with the time they were fetched.
+
+CREATE TABLE IF NOT EXISTS book_info_cache (
+    isbn       VARCHAR(255) NOT NULL,
+    payload    TEXT,
+    found      BOOLEAN      NOT NULL,
+    fetched_at TIMESTAMP    NOT NULL,
+    CONSTRAINT book_info_cache_pkey PRIMARY KEY (isbn)
+);
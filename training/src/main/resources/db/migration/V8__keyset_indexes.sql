@@ -0,0 +1,20 @@
+-- Keyset pages are ordered by (column, id) and start at a range of the column, so each sortable column needs
+-- an index on both to read a page without scanning the rows before it. Where a column had a single column
+-- index for filtering, the composite replaces it: its leading column serves the same equality lookups.
+
+CREATE INDEX IF NOT EXISTS idx_book_title_id ON book (title, id);
+CREATE INDEX IF NOT EXISTS idx_book_author_id ON book (author, id);
+CREATE INDEX IF NOT EXISTS idx_book_publisher_id ON book (publisher, id);
+CREATE INDEX IF NOT EXISTS idx_book_year_id ON book (year, id);
+CREATE INDEX IF NOT EXISTS idx_book_pages_id ON book (pages, id);
+
+DROP INDEX IF EXISTS idx_book_title;
+DROP INDEX IF EXISTS idx_book_author;
+DROP INDEX IF EXISTS idx_book_year;
+
+-- name only had the trigram index, which cannot return rows in order
+CREATE INDEX IF NOT EXISTS idx_users_name_id ON users (name, id);
+CREATE INDEX IF NOT EXISTS idx_users_username_id ON users (username, id);
+CREATE INDEX IF NOT EXISTS idx_users_birthdate_id ON users (birthdate, id);
+
+DROP INDEX IF EXISTS idx_users_birthdate;
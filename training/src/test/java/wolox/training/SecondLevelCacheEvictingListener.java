@@ -0,0 +1,32 @@
+package wolox.training;
+
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
+
+/**
+ * Empties Hibernate's second-level and query caches after every test. Rows a test reads inside its rolled
+ * back transaction can still reach the caches, and the next test would find books that were never committed.
+ * Ordered before {@link TransactionalTestExecutionListener} so that, after the test, it runs once the
+ * rollback is done.
+ */
+public class SecondLevelCacheEvictingListener extends AbstractTestExecutionListener {
+
+    @Override
+    public int getOrder() {
+        return 3000;
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) {
+        ApplicationContext applicationContext = testContext.getApplicationContext();
+
+        for(EntityManagerFactory entityManagerFactory : applicationContext.getBeansOfType(EntityManagerFactory.class).values()) {
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        }
+    }
+
+}
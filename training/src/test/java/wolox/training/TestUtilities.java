@@ -1,27 +1,35 @@
 package wolox.training;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import wolox.training.models.Book;
+import wolox.training.models.BulkItemResult;
 import wolox.training.models.User;
+import wolox.training.services.BulkProcessor;
 
 public abstract class TestUtilities {
 
 
     public static Book createDefaultBook(Long id, String title) throws NoSuchFieldException, IllegalAccessException{
         Book book = new Book("J. K. Rowling", "image.png", title,
-            "-", "Bloomsbury Publishing", "1997", 223, "9780747532743", "Fantasy");
+            "-", "Bloomsbury Publishing", "1997", 223, String.format("97807475%05d", id), "Fantasy");
 
         Field fieldId = book.getClass().getDeclaredField("id");
         fieldId.setAccessible(true);
@@ -37,6 +45,13 @@ public abstract class TestUtilities {
         return book;
     }
 
+    public static <T> T setVersion(Long version, T entity) throws NoSuchFieldException, IllegalAccessException {
+        Field fieldVersion = entity.getClass().getDeclaredField("version");
+        fieldVersion.setAccessible(true);
+        fieldVersion.set(entity, version);
+        return entity;
+    }
+
     public static String mapToJsonString(Object obj) throws JsonProcessingException {
 
         ObjectMapper mapper = new ObjectMapper();
@@ -63,6 +78,10 @@ public abstract class TestUtilities {
         return user;
     }
 
+    public static Book bookAt(User user, int index) {
+        return new ArrayList<>(user.getBooks()).get(index);
+    }
+
     private static List<Book> generateBooks() throws NoSuchFieldException, IllegalAccessException {
         List<Book> books = new ArrayList<>();
 
@@ -77,6 +96,25 @@ public abstract class TestUtilities {
         return books;
     }
 
+    /**
+     * Makes a mocked processor hand every item to the controller's handler as a single chunk.
+     */
+    public static void processInline(BulkProcessor bulkProcessor) throws IOException {
+        given(bulkProcessor.process(any(), any())).willAnswer(invocation -> {
+            MappingIterator<Object> items = invocation.getArgument(0);
+            Function<List<Object>, List<BulkItemResult>> handler = invocation.getArgument(1);
+
+            return handler.apply(items.readAll());
+        });
+        given(bulkProcessor.process(any(), any(), any())).willAnswer(invocation -> {
+            MappingIterator<Object> items = invocation.getArgument(0);
+            Function<List<Object>, List<Object>> prepare = invocation.getArgument(1);
+            Function<List<Object>, List<BulkItemResult>> handler = invocation.getArgument(2);
+
+            return handler.apply(prepare.apply(items.readAll()));
+        });
+    }
+
     @Bean
     public static PasswordEncoder encoder(){
 
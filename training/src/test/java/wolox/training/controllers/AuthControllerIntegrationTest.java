@@ -0,0 +1,86 @@
+package wolox.training.controllers;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import wolox.training.models.AuthToken;
+import wolox.training.security.CustomAuthenticationProvider;
+import wolox.training.security.TokenService;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(AuthController.class)
+public class AuthControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @MockBean
+    private CustomAuthenticationProvider authProvider;
+
+    @MockBean
+    private TokenService tokenService;
+
+    private String loginUrl;
+    private AuthToken authToken;
+
+    @Before
+    public void setUp() {
+        loginUrl = "/api/auth/login";
+        authToken = new AuthToken("dXNlcjoxNTU2NjY4MDAw.c2lnbmF0dXJl", 1556668000L);
+    }
+
+    //region login
+    @Test
+    public void givenValidCredentials_whenLogin_thenReturnToken() throws Exception {
+        JSONObject jo = new JSONObject();
+        jo.put("username", "user");
+        jo.put("password", "1234");
+
+        given(authProvider.authenticate(any(Authentication.class)))
+            .willReturn(new UsernamePasswordAuthenticationToken("user", "1234", new ArrayList<>()));
+        given(tokenService.issue("user")).willReturn(authToken);
+
+        mvc.perform(post(loginUrl)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(jo.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.token", is(authToken.getToken())))
+            .andExpect(jsonPath("$.expiresAt", is(authToken.getExpiresAt().intValue())));
+    }
+
+    @Test
+    public void givenWrongPassword_whenLogin_thenReturnUnauthorized() throws Exception {
+        JSONObject jo = new JSONObject();
+        jo.put("username", "user");
+        jo.put("password", "wrong");
+
+        given(authProvider.authenticate(any(Authentication.class)))
+            .willThrow(new BadCredentialsException("Wrong user or password."));
+
+        mvc.perform(post(loginUrl)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(jo.toString()))
+            .andExpect(status().isUnauthorized())
+            .andExpect(status().reason("Wrong User Or Password"));
+    }
+    //endregion
+
+}
@@ -1,20 +1,40 @@
 package wolox.training.controllers;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
@@ -25,21 +45,42 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static wolox.training.TestUtilities.createDefaultBook;
 import static wolox.training.TestUtilities.mapToJsonString;
+import static wolox.training.TestUtilities.processInline;
+import static wolox.training.TestUtilities.setVersion;
 
+import wolox.training.exceptions.BookLookupRejectedException;
 import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.TooManyIsbnsException;
 import wolox.training.models.Book;
+import wolox.training.models.BulkItemResult;
+import wolox.training.models.CursorPage;
 import wolox.training.models.BookDTO;
+import wolox.training.models.IsbnImportResult;
+import wolox.training.models.IsbnImportResult.Status;
+import wolox.training.models.UploadProgress;
 import wolox.training.repositories.BookRepository;
 import wolox.training.security.CustomAuthenticationProvider;
-import wolox.training.services.OpenLibraryService;
+import wolox.training.security.TokenService;
+import wolox.training.services.BookExportService;
+import wolox.training.services.BookImportService;
+import wolox.training.services.BookUploadService;
+import wolox.training.services.BookSearchEngine;
+import wolox.training.services.BulkProcessor;
+import wolox.training.services.CatalogFormat;
 
 
 @RunWith(SpringRunner.class)
@@ -53,15 +94,33 @@ public class BookControllerIntegrationTest {
     private BookRepository bookRepository;
 
     @MockBean
-    private OpenLibraryService openLibraryService;
+    private BookImportService bookImportService;
+
+    @MockBean
+    private BookSearchEngine bookSearchEngine;
+
+    @MockBean
+    private BulkProcessor bulkProcessor;
+
+    @MockBean
+    private BookExportService bookExportService;
+
+    @MockBean
+    private BookUploadService bookUploadService;
 
     @MockBean
     private CustomAuthenticationProvider customAuthenticationProvider;
 
+    @MockBean
+    private TokenService tokenService;
+
     private String baseUrl;
     private String bookNotFoundExReason;
     private String nullAttributesExReason;
     private String idMismatchExReason;
+    private String isbnMismatchExReason;
+    private String preconditionFailedExReason;
+    private String bookETag;
     private Book book;
     private Book otherBook;
     private Long nonExistingId;
@@ -80,10 +139,13 @@ public class BookControllerIntegrationTest {
         bookNotFoundExReason = "Book Not Found";
         nullAttributesExReason = "Received Null Attributes";
         idMismatchExReason = "Book Id Mismatch";
+        isbnMismatchExReason = "Book Isbn Mismatch";
+        preconditionFailedExReason = "Resource Was Modified";
 
         defaultPageable = PageRequest.of(0,20);
 
-        book = createDefaultBook(1L, "Harry Potter and the Philosopher's Stone");
+        book = setVersion(3L, createDefaultBook(1L, "Harry Potter and the Philosopher's Stone"));
+        bookETag = "\"1-3\"";
         otherBook = createDefaultBook(2L, "Harry Potter 2");
 
         books = new ArrayList<Book>();
@@ -110,6 +172,8 @@ public class BookControllerIntegrationTest {
            defaultPageable)).willReturn(books);
         given(bookRepository.findById(book.getId())).willReturn(java.util.Optional.of(book));
         given(bookRepository.findById(nonExistingId)).willReturn(Optional.empty());
+        given(bookRepository.findVersionById(book.getId())).willReturn(Optional.of(book.getVersion()));
+        given(bookRepository.findVersionById(nonExistingId)).willReturn(Optional.empty());
     }
 
     //region get all books tests
@@ -132,6 +196,38 @@ public class BookControllerIntegrationTest {
             .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    public void givenValidBearerToken_whenGetBooks_thenReturnJsonArray() throws Exception {
+        given(tokenService.verify("valid-token")).willReturn("user");
+
+        mvc.perform(get(baseUrl)
+            .header(HttpHeaders.AUTHORIZATION, "Bearer valid-token"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(books.size())));
+    }
+
+    @Test
+    public void givenRejectedBearerToken_whenGetBooks_thenFailWith401() throws Exception {
+        given(tokenService.verify("tampered-token")).willReturn(null);
+
+        mvc.perform(get(baseUrl)
+            .header(HttpHeaders.AUTHORIZATION, "Bearer tampered-token"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void givenBasicCredentials_whenGetBooks_thenFallThroughToBasicAuth() throws Exception {
+        given(customAuthenticationProvider.supports(any())).willReturn(true);
+        given(customAuthenticationProvider.authenticate(any()))
+            .willReturn(new UsernamePasswordAuthenticationToken("user", "1234", new ArrayList<>()));
+
+        mvc.perform(get(baseUrl)
+            .with(httpBasic("user", "1234")))
+            .andExpect(status().isOk());
+
+        verify(tokenService, never()).verify(any());
+    }
+
     @WithMockUser(username = "user", password = "1234")
     @Test
     public void givenGenreProperty_whenGetAllBooks_thenReturnJsonArrayContainingBooksWithGenre() throws Exception{
@@ -168,6 +264,69 @@ public class BookControllerIntegrationTest {
             .andExpect(jsonPath("$[0].title", is(otherBook.getTitle())))
             .andExpect(jsonPath("$[1].title", is(book.getTitle())));
     }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenUnchangedPage_whenGetBooksWithIfNoneMatch_thenReturnNotModified() throws Exception{
+        String eTag = mvc.perform(get(baseUrl)
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(eTag).startsWith("W/");
+
+        mvc.perform(get(baseUrl)
+            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCborAccept_whenGetBooks_thenReturnCbor() throws Exception{
+        MediaType cbor = MediaType.parseMediaType("application/cbor");
+
+        byte[] body = mvc.perform(get(baseUrl)
+            .accept(cbor))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(cbor))
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new ObjectMapper(new CBORFactory()).readTree(body);
+
+        assertThat(page.size()).isEqualTo(books.size());
+        assertThat(page.get(0).get("title").asText()).isEqualTo(book.getTitle());
+        assertThat(page.get(1).get("title").asText()).isEqualTo(otherBook.getTitle());
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenSummaryView_whenGetBooks_thenReturnOnlySummaryFields() throws Exception{
+
+        mvc.perform(get(baseUrl+"?view=summary")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(books.size())))
+            .andExpect(jsonPath("$[0].id", is(book.getId().intValue())))
+            .andExpect(jsonPath("$[0].title", is(book.getTitle())))
+            .andExpect(jsonPath("$[0].author", is(book.getAuthor())))
+            .andExpect(jsonPath("$[0].isbn", is(book.getIsbn())))
+            .andExpect(jsonPath("$[0].image").doesNotExist())
+            .andExpect(jsonPath("$[0].subtitle").doesNotExist())
+            .andExpect(jsonPath("$[0].version").doesNotExist());
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenUnknownView_whenGetBooks_thenReturnBadRequest() throws Exception{
+
+        mvc.perform(get(baseUrl+"?view=everything")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
     //endregion
 
     //region get one book tests
@@ -176,6 +335,58 @@ public class BookControllerIntegrationTest {
     public void givenId_whenGetBook_thenReturnJson() throws Exception {
 
         mvc.perform(get(baseUrl+"{id}", book.getId())
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.title", is(book.getTitle())))
+            .andExpect(header().string(HttpHeaders.ETAG, bookETag));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCurrentETag_whenGetBook_thenReturnNotModifiedWithoutLoadingIt() throws Exception {
+
+        mvc.perform(get(baseUrl+"{id}", book.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, bookETag)
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, bookETag))
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+            .andExpect(content().string(""));
+
+        verify(bookRepository, never()).findById(book.getId());
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCborAccept_whenGetBook_thenReturnCborWithItsOwnETag() throws Exception {
+        MediaType cbor = MediaType.parseMediaType("application/cbor");
+
+        mvc.perform(get(baseUrl+"{id}", book.getId())
+            .accept(cbor))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(cbor))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1-3+cbor\""))
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenJsonETag_whenGetBookAsCbor_thenReturnCbor() throws Exception {
+        MediaType cbor = MediaType.parseMediaType("application/cbor");
+
+        mvc.perform(get(baseUrl+"{id}", book.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, bookETag)
+            .accept(cbor))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(cbor));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenStaleETag_whenGetBook_thenReturnJson() throws Exception {
+
+        mvc.perform(get(baseUrl+"{id}", book.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"1-2\"")
             .contentType(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.title", is(book.getTitle())));
@@ -213,8 +424,7 @@ public class BookControllerIntegrationTest {
         Book newBook = new Book(bookDTO);
 
         given(bookRepository.findByIsbn(isbn)).willReturn(Optional.empty());
-        given(openLibraryService.bookInfo(isbn)).willReturn(bookDTO);
-        given(bookRepository.save(new Book(bookDTO))).willReturn(newBook);
+        given(bookImportService.importByIsbn(isbn)).willReturn(newBook);
 
         mvc.perform(get(baseUrl+"isbn/{isbn}", isbn)
             .contentType(MediaType.APPLICATION_JSON))
@@ -250,8 +460,7 @@ public class BookControllerIntegrationTest {
         Book newBook = new Book(bookDTO);
 
         given(bookRepository.findByIsbn(isbn)).willReturn(Optional.empty());
-        given(openLibraryService.bookInfo(isbn)).willReturn(bookDTO);
-        given(bookRepository.save(new Book(bookDTO))).willReturn(newBook);
+        given(bookImportService.importByIsbn(isbn)).willReturn(newBook);
 
         mvc.perform(get(baseUrl+"isbn/{isbn}", isbn)
             .contentType(MediaType.APPLICATION_JSON))
@@ -272,7 +481,7 @@ public class BookControllerIntegrationTest {
         String nonExistingIsbn = "000";
 
         given(bookRepository.findByIsbn(nonExistingIsbn)).willReturn(Optional.empty());
-        willThrow(new BookNotFoundException()).given(openLibraryService).bookInfo(any(String.class));
+        willThrow(new BookNotFoundException()).given(bookImportService).importByIsbn(any(String.class));
 
         mvc.perform(get(baseUrl+"isbn/{isbn}","nonExistingIsbn")
             .contentType(MediaType.APPLICATION_JSON))
@@ -281,6 +490,145 @@ public class BookControllerIntegrationTest {
     }
     //endregion
 
+    //region search books tests
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenQuery_whenSearchBooks_thenReturnRankedBooks() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(book);
+        books.add(otherBook);
+
+        given(bookSearchEngine.search("harry pot", 20)).willReturn(books);
+
+        mvc.perform(get(baseUrl+"search?q={query}", "harry pot")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].title", is(book.getTitle())))
+            .andExpect(jsonPath("$[1].title", is(otherBook.getTitle())));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenBlankQuery_whenSearchBooks_thenReturnBadRequest() throws Exception {
+        mvc.perform(get(baseUrl+"search?q= ")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+    //endregion
+
+    //region seek books tests
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenGenreFilter_whenSeekBooks_thenReturnPageWithNextCursor() throws Exception {
+        List<Book> books = new ArrayList<>();
+        books.add(book);
+
+        given(bookRepository.seek(any(), eq("title"), eq(Direction.ASC), isNull(), eq(1))).willReturn(new CursorPage<>(books, "nextCursor"));
+
+        mvc.perform(get(baseUrl+"seek?genre=Fantasy&sort=title&size=1")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content", hasSize(1)))
+            .andExpect(jsonPath("$.content[0].title", is(book.getTitle())))
+            .andExpect(jsonPath("$.nextCursor", is("nextCursor")));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenInvalidDirection_whenSeekBooks_thenReturnBadRequest() throws Exception {
+        mvc.perform(get(baseUrl+"seek?direction=sideways")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+    //endregion
+
+    //region find by isbn async tests
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenInApiIsbn_whenFindByIsbnAsync_thenReturnCreated() throws Exception {
+        given(bookRepository.findByIsbn(book.getIsbn())).willReturn(Optional.empty());
+        given(bookImportService.importByIsbnAsync(book.getIsbn())).willReturn(CompletableFuture.completedFuture(book));
+
+        MvcResult result = mvc.perform(get(baseUrl+"isbn/{isbn}/async", book.getIsbn())
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("title", is(book.getTitle())))
+            .andExpect(jsonPath("isbn", is(book.getIsbn())));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenNonExistingIsbn_whenFindByIsbnAsync_thenThrowBookNotFound() throws Exception {
+        CompletableFuture<Book> notFound = new CompletableFuture<>();
+        notFound.completeExceptionally(new BookNotFoundException());
+
+        given(bookRepository.findByIsbn(book.getIsbn())).willReturn(Optional.empty());
+        given(bookImportService.importByIsbnAsync(book.getIsbn())).willReturn(notFound);
+
+        MvcResult result = mvc.perform(get(baseUrl+"isbn/{isbn}/async", book.getIsbn())
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isNotFound())
+            .andExpect(status().reason(bookNotFoundExReason));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenFullLookupQueue_whenFindByIsbnAsync_thenServiceUnavailable() throws Exception {
+        given(bookRepository.findByIsbn(book.getIsbn())).willReturn(Optional.empty());
+        willThrow(new BookLookupRejectedException()).given(bookImportService).importByIsbnAsync(book.getIsbn());
+
+        mvc.perform(get(baseUrl+"isbn/{isbn}/async", book.getIsbn())
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isServiceUnavailable());
+    }
+    //endregion
+
+    //region import tests
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenIsbns_whenImportAll_thenStreamOneLinePerIsbn() throws Exception {
+        willAnswer(invocation -> {
+            Consumer<IsbnImportResult> listener = invocation.getArgument(1);
+            listener.accept(IsbnImportResult.of(book, Status.EXISTING));
+            listener.accept(IsbnImportResult.failed("0000000000", Status.NOT_FOUND, null));
+            return null;
+        }).given(bookImportService).importAll(anyCollection(), any());
+
+        MvcResult result = mvc.perform(post(baseUrl+"import")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"" + book.getIsbn() + "\", \"0000000000\"]"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andExpect(content().string(
+                "{\"isbn\":\"" + book.getIsbn() + "\",\"status\":\"EXISTING\",\"bookId\":" + book.getId() + ",\"error\":null}\n"
+                + "{\"isbn\":\"0000000000\",\"status\":\"NOT_FOUND\",\"bookId\":null,\"error\":null}\n"));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenTooManyIsbns_whenImportAll_thenPayloadTooLarge() throws Exception {
+        willThrow(new TooManyIsbnsException()).given(bookImportService).checkImportSize(anyList());
+
+        mvc.perform(post(baseUrl+"import")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"" + book.getIsbn() + "\"]"))
+            .andExpect(status().isPayloadTooLarge());
+    }
+    //endregion
+
     //region create book tests
     @Test
     public void givenBook_whenCreateBook_thenReturnJson() throws Exception {
@@ -303,6 +651,19 @@ public class BookControllerIntegrationTest {
             .andExpect(jsonPath("$.image", is(book.getImage())));
     }
 
+    @Test
+    public void givenCborBook_whenCreateBook_thenReturnJson() throws Exception {
+        given(bookRepository.save(book)).willReturn(book);
+
+        mvc.perform(post(baseUrl)
+            .contentType(MediaType.parseMediaType("application/cbor"))
+            .accept(MediaType.APPLICATION_JSON)
+            .content(new ObjectMapper(new CBORFactory()).writeValueAsBytes(book)))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.title", is(book.getTitle())))
+            .andExpect(jsonPath("$.isbn", is(book.getIsbn())));
+    }
+
     @Test
     public void givenBookWithNullGenre_whenCreateBook_thenReturnJson() throws Exception {
         Book newBook = book;
@@ -421,6 +782,95 @@ public class BookControllerIntegrationTest {
             .andExpect(status().reason(idMismatchExReason));
     }
 
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenOtherIsbn_whenUpdateBook_thenThrowIsbnMismatch() throws Exception{
+        Book changedBook = createDefaultBook(book.getId(), "Harry Potter and the Philosopher's Stone");
+        changedBook.setIsbn("9780747538493");
+
+        mvc.perform(put(baseUrl+"{id}",book.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(changedBook)))
+            .andExpect(status().isConflict())
+            .andExpect(status().reason(isbnMismatchExReason));
+
+        verify(bookRepository, never()).save(any(Book.class));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCurrentIfMatch_whenUpdateBook_thenReturnJsonWithNewETag() throws Exception{
+        Book savedBook = setVersion(4L, createDefaultBook(book.getId(), "new title"));
+
+        given(bookRepository.save(book)).willReturn(savedBook);
+
+        mvc.perform(put(baseUrl+"{id}",book.getId())
+            .header(HttpHeaders.IF_MATCH, bookETag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(savedBook)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""))
+            .andExpect(jsonPath("$.title", is("new title")));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCurrentCborIfMatch_whenUpdateBook_thenReturnJsonWithNewETag() throws Exception{
+        Book savedBook = setVersion(4L, createDefaultBook(book.getId(), "new title"));
+
+        given(bookRepository.save(book)).willReturn(savedBook);
+
+        mvc.perform(put(baseUrl+"{id}",book.getId())
+            .header(HttpHeaders.IF_MATCH, "\"1-3+cbor\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(savedBook)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenStaleIfMatch_whenUpdateBook_thenThrowPreconditionFailed() throws Exception{
+
+        mvc.perform(put(baseUrl+"{id}",book.getId())
+            .header(HttpHeaders.IF_MATCH, "\"1-2\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(book)))
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(status().reason(preconditionFailedExReason));
+
+        verify(bookRepository, never()).save(any(Book.class));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenConcurrentUpdate_whenUpdateBookWithIfMatch_thenThrowPreconditionFailed() throws Exception{
+        willThrow(new ObjectOptimisticLockingFailureException(Book.class, book.getId()))
+            .given(bookRepository).save(any(Book.class));
+
+        mvc.perform(put(baseUrl+"{id}",book.getId())
+            .header(HttpHeaders.IF_MATCH, bookETag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(book)))
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(status().reason(preconditionFailedExReason));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenConcurrentUpdate_whenUpdateBookWithoutIfMatch_thenThrowConflict() throws Exception{
+        willThrow(new ObjectOptimisticLockingFailureException(Book.class, book.getId()))
+            .given(bookRepository).save(any(Book.class));
+
+        mvc.perform(put(baseUrl+"{id}",book.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(book)))
+            .andExpect(status().isConflict())
+            .andExpect(status().reason("Book Modified Concurrently"));
+
+        verify(bookSearchEngine, never()).index(any());
+    }
+
     @WithMockUser(username = "user", password = "1234")
     @Test(expected = IllegalArgumentException.class)
     public void givenNullAttribute_whenUpdateBook_thenThrowNullArguments() throws Exception{
@@ -454,6 +904,147 @@ public class BookControllerIntegrationTest {
     }
     //endregion
 
+    //region export tests
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCsvFormat_whenExport_thenStreamCsvAttachment() throws Exception {
+        willAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("id,isbn\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).given(bookExportService).export(eq(CatalogFormat.CSV), any());
+
+        MvcResult result = mvc.perform(get(baseUrl+"export?format=csv"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"books.csv\""))
+            .andExpect(content().string("id,isbn\r\n"));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenUnknownFormat_whenExport_thenBadRequest() throws Exception {
+        mvc.perform(get(baseUrl+"export?format=xml"))
+            .andExpect(status().isBadRequest());
+    }
+    //endregion
+
+    //region upload tests
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCsvUpload_whenUpload_thenStreamRejectedRowsAndProgress() throws Exception {
+        willAnswer(invocation -> {
+            Consumer<BulkItemResult> rejected = invocation.getArgument(2);
+            Consumer<UploadProgress> progress = invocation.getArgument(3);
+            rejected.accept(BulkItemResult.failed(BulkItemResult.Status.INVALID, null, "Please enter a valid year").atIndex(1));
+            progress.accept(new UploadProgress(2, 1, 1, true, null));
+            return null;
+        }).given(bookUploadService).upload(eq(CatalogFormat.CSV), any(), any(), any());
+
+        MvcResult result = mvc.perform(post(baseUrl+"upload")
+            .contentType("text/csv")
+            .content("isbn,title\r\n"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andExpect(content().string(
+                "{\"index\":1,\"status\":\"INVALID\",\"id\":null,\"error\":\"Please enter a valid year\"}\n"
+                + "{\"rows\":2,\"created\":1,\"rejected\":1,\"done\":true,\"error\":null}\n"));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenNdjsonUpload_whenUpload_thenReadAsNdjson() throws Exception {
+        MvcResult result = mvc.perform(post(baseUrl+"upload")
+            .contentType("application/x-ndjson")
+            .content(new ObjectMapper().writeValueAsString(book) + "\n"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk());
+
+        verify(bookUploadService).upload(eq(CatalogFormat.NDJSON), any(), any(), any());
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenXmlUpload_whenUpload_thenUnsupportedMediaType() throws Exception {
+        mvc.perform(post(baseUrl+"upload")
+            .contentType(MediaType.APPLICATION_XML)
+            .content("<books/>"))
+            .andExpect(status().isUnsupportedMediaType());
+    }
+    //endregion
+
+    //region bulk tests
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenNdjsonBooks_whenCreateAll_thenReportEveryBook() throws Exception {
+        processInline(bulkProcessor);
+
+        String incompleteBook = "{\"author\":\"Anonymous\",\"image\":\"image.png\",\"title\":\"Untitled\","
+            + "\"publisher\":\"Nobody\",\"year\":\"1990\",\"pages\":10,\"isbn\":\"0000000000\"}";
+
+        mvc.perform(post(baseUrl+"bulk")
+            .contentType("application/x-ndjson")
+            .content(new ObjectMapper().writeValueAsString(book) + "\n" + incompleteBook + "\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].status", is("CREATED")))
+            .andExpect(jsonPath("$[1].status", is("INVALID")));
+
+        verify(bookRepository).save(book);
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenStoredAndUnknownBooks_whenUpdateAll_thenUpdateOnlyStoredOnes() throws Exception {
+        processInline(bulkProcessor);
+        given(bookRepository.findAllById(anyList())).willReturn(Collections.singletonList(book));
+
+        Book changedBook = createDefaultBook(book.getId(), "Harry Potter and the Chamber of Secrets");
+        Book unknownBook = createDefaultBook(nonExistingId, "Unknown");
+
+        mvc.perform(put(baseUrl+"bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(new ObjectMapper().writeValueAsString(new Book[]{changedBook, unknownBook})))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status", is(BulkItemResult.Status.UPDATED.name())))
+            .andExpect(jsonPath("$[0].id", is(book.getId().intValue())))
+            .andExpect(jsonPath("$[1].status", is(BulkItemResult.Status.NOT_FOUND.name())));
+
+        verify(bookSearchEngine).index(book);
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenBookWithOtherIsbn_whenUpdateAll_thenRejectIt() throws Exception {
+        processInline(bulkProcessor);
+        given(bookRepository.findAllById(anyList())).willReturn(Collections.singletonList(book));
+
+        Book changedBook = createDefaultBook(book.getId(), "Harry Potter and the Chamber of Secrets");
+        changedBook.setIsbn("9780747538493");
+
+        mvc.perform(put(baseUrl+"bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(new ObjectMapper().writeValueAsString(new Book[]{changedBook})))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status", is(BulkItemResult.Status.INVALID.name())))
+            .andExpect(jsonPath("$[0].error", is("The ISBN cannot be changed")));
+
+        assertThat(book.getTitle()).isNotEqualTo(changedBook.getTitle());
+        verify(bookSearchEngine, never()).index(any(Book.class));
+    }
+    //endregion
+
     //region find book by publisher, genre and year
     @WithMockUser(username = "user", password = "1234")
     @Test
@@ -0,0 +1,116 @@
+package wolox.training.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+import wolox.training.models.Book;
+import wolox.training.repositories.BookRepository;
+import wolox.training.security.CustomAuthenticationProvider;
+
+/**
+ * Talks to the embedded Tomcat over a plain connection, which neither asks for nor undoes compression on its
+ * own: MockMvc never reaches the connector, where responses are gzipped.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class ListCompressionIntegrationTest {
+
+    private static final int BOOKS = 20;
+
+    private static final String ISBN_PREFIX = "list-compression-";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private CustomAuthenticationProvider customAuthenticationProvider;
+
+    @Before
+    public void setUp() {
+        given(customAuthenticationProvider.supports(any())).willReturn(true);
+        given(customAuthenticationProvider.authenticate(any()))
+            .willReturn(new UsernamePasswordAuthenticationToken("user", "1234", new ArrayList<>()));
+
+        List<Book> books = new ArrayList<>();
+        for(int i = 0; i < BOOKS; i++) {
+            books.add(new Book("J. K. Rowling", "https://covers.openlibrary.org/b/id/" + (240000 + i) + "-M.jpg",
+                "Harry Potter, volume " + i, "A novel", "Bloomsbury Publishing", "1997", 223, ISBN_PREFIX + i, "Fantasy"));
+        }
+        bookRepository.saveAll(books);
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM book WHERE isbn LIKE ?", ISBN_PREFIX + "%");
+    }
+
+    @Test
+    public void givenGzipAccepted_whenGetBooks_thenCompressTheListWithWeakETag() throws IOException {
+        HttpURLConnection connection = get("/api/books/", null);
+
+        assertThat(connection.getResponseCode()).isEqualTo(HttpURLConnection.HTTP_OK);
+        assertThat(connection.getHeaderField(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(connection.getHeaderField(HttpHeaders.ETAG)).startsWith("W/");
+
+        try (InputStream body = new GZIPInputStream(connection.getInputStream())) {
+            assertThat(StreamUtils.copyToString(body, StandardCharsets.UTF_8)).startsWith("[");
+        }
+    }
+
+    @Test
+    public void givenWeakETag_whenGetBooksAgain_thenReturnNotModified() throws IOException {
+        HttpURLConnection first = get("/api/books/", null);
+        String eTag = first.getHeaderField(HttpHeaders.ETAG);
+        first.getInputStream().close();
+
+        HttpURLConnection second = get("/api/books/", eTag);
+
+        assertThat(second.getResponseCode()).isEqualTo(HttpURLConnection.HTTP_NOT_MODIFIED);
+    }
+
+    //region private methods
+    private HttpURLConnection get(String path, String ifNoneMatch) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        connection.setRequestProperty(HttpHeaders.AUTHORIZATION,
+            "Basic " + Base64.getEncoder().encodeToString("user:1234".getBytes(StandardCharsets.UTF_8)));
+
+        if(ifNoneMatch != null) {
+            connection.setRequestProperty(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+
+        return connection;
+    }
+    //endregion
+
+}
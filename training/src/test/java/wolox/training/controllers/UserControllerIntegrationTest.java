@@ -1,23 +1,41 @@
 package wolox.training.controllers;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static wolox.training.TestUtilities.bookAt;
 import static wolox.training.TestUtilities.createDefaultBook;
 import static wolox.training.TestUtilities.createDefaultUser;
+import static wolox.training.TestUtilities.setVersion;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import java.time.LocalDate;
 import org.json.JSONObject;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.domain.Sort.Order;
 import org.springframework.security.test.context.support.WithMockUser;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import org.junit.Before;
@@ -26,16 +44,28 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static wolox.training.TestUtilities.mapToJsonString;
+import static wolox.training.TestUtilities.processInline;
+import wolox.training.exceptions.BookAlreadyOwnedException;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.InvalidCursorException;
 import wolox.training.models.Book;
+import wolox.training.models.CursorPage;
 import wolox.training.models.User;
 import wolox.training.repositories.BookRepository;
 import wolox.training.repositories.UserRepository;
+import wolox.training.security.AuthenticationCache;
 import wolox.training.security.CustomAuthenticationProvider;
+import wolox.training.security.TokenService;
+import wolox.training.services.BulkProcessor;
+import wolox.training.services.PasswordHashingService;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(UserController.class)
@@ -53,6 +83,18 @@ public class UserControllerIntegrationTest {
     @MockBean
     private CustomAuthenticationProvider authProvider;
 
+    @MockBean
+    private TokenService tokenService;
+
+    @MockBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockBean
+    private AuthenticationCache authenticationCache;
+
+    @MockBean
+    private BulkProcessor bulkProcessor;
+
     private User user;
     private User otherUser;
     private List<User> users = new ArrayList<>();
@@ -64,6 +106,9 @@ public class UserControllerIntegrationTest {
     private String bookNotFoundExReason;
     private String bookAlreadyOwnedExReason;
     private String bookNotInUserListExReason;
+    private String preconditionFailedExReason;
+    private String userUpdateConflictExReason;
+    private String userETag;
     private Book book;
     private Pageable defaultPageable;
 
@@ -81,8 +126,11 @@ public class UserControllerIntegrationTest {
         bookNotFoundExReason = "Book Not Found";
         bookAlreadyOwnedExReason = "Book Already Owned";
         bookNotInUserListExReason = "This user does not own the book you are trying to delete";
+        preconditionFailedExReason = "Resource Was Modified";
+        userUpdateConflictExReason = "User Modified Concurrently";
 
-        user = createDefaultUser(1L, "user");
+        user = setVersion(2L, createDefaultUser(1L, "user"));
+        userETag = "\"1-" + user.getVersionTag() + "\"";
         otherUser = createDefaultUser(2L, "Mariana");
 
         book = createDefaultBook(10L, "Cinderella");
@@ -93,6 +141,9 @@ public class UserControllerIntegrationTest {
         given(userRepository.findAllUsers(defaultPageable)).willReturn(users);
         given(userRepository.findById(user.getId())).willReturn(java.util.Optional.ofNullable(user));
         given(userRepository.findById(nonExistingId)).willReturn(Optional.empty());
+        given(userRepository.findWithBooksById(user.getId())).willReturn(Optional.of(user));
+        given(userRepository.findVersionTagById(user.getId())).willReturn(Optional.of(user.getVersionTag()));
+        given(userRepository.findVersionTagById(nonExistingId)).willReturn(Optional.empty());
 
         given(bookRepository.findById(book.getId())).willReturn(Optional.of(book));
         given(bookRepository.findById(nonExistingId)).willReturn(Optional.empty());
@@ -142,6 +193,37 @@ public class UserControllerIntegrationTest {
             .andExpect(status().isUnauthorized());
     }
 
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenSmileAcceptAndSummaryView_whenGetUsers_thenReturnSmileSummary() throws Exception {
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+
+        byte[] body = mvc.perform(get(baseUrl+"?view=summary")
+            .accept(smile))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(smile))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode page = new ObjectMapper(new SmileFactory()).readTree(body);
+
+        assertThat(page.size()).isEqualTo(users.size());
+        assertThat(page.get(0).get("username").asText()).isEqualTo(user.getUsername());
+        assertThat(page.get(0).has("books")).isFalse();
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenSummaryView_whenGetUsers_thenLeaveOutBooksAndBirthdate() throws Exception {
+        mvc.perform(get(baseUrl+"?view=summary")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(users.size())))
+            .andExpect(jsonPath("$[0].username", is(user.getUsername())))
+            .andExpect(jsonPath("$[0].name", is(user.getName())))
+            .andExpect(jsonPath("$[0].birthdate").doesNotExist())
+            .andExpect(jsonPath("$[0].books").doesNotExist());
+    }
+
     @WithMockUser(username = "user", password = "1234")
     @Test
     public void givenPageableAndNameSorting_whenGetAllUsers_thenReturnJsonArray()
@@ -172,6 +254,29 @@ public class UserControllerIntegrationTest {
             .andExpect(jsonPath("$[2].name", is(foundUsers.get(2).getName())));
     }
 
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCursor_whenSeekUsers_thenReturnPageWithNextCursor() throws Exception {
+        given(userRepository.seek("name", Direction.DESC, "cursor", 2)).willReturn(new CursorPage<>(users, "nextCursor"));
+
+        mvc.perform(get(baseUrl+"seek?sort=name&direction=desc&cursor=cursor&size=2")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content", hasSize(users.size())))
+            .andExpect(jsonPath("$.content[0].name", is(user.getName())))
+            .andExpect(jsonPath("$.nextCursor", is("nextCursor")));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenInvalidCursor_whenSeekUsers_thenReturnBadRequest() throws Exception {
+        given(userRepository.seek("id", Direction.ASC, "invalid", 20)).willThrow(new InvalidCursorException());
+
+        mvc.perform(get(baseUrl+"seek?cursor=invalid")
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
     //endregion
 
     //region get one user
@@ -185,9 +290,49 @@ public class UserControllerIntegrationTest {
             .andExpect(jsonPath("$.username", is(user.getUsername())))
             .andExpect(jsonPath("$.birthdate", is(user.getBirthdate().toString())))
             .andExpect(jsonPath("$.books", hasSize(user.getBooks().size())))
-            .andExpect(jsonPath("$.books[0].title", is(user.getBooks().get(0).getTitle())))
-            .andExpect(jsonPath("$.books[1].title", is(user.getBooks().get(1).getTitle())))
-            .andExpect(jsonPath("$.books[2].title", is(user.getBooks().get(2).getTitle())));
+            .andExpect(jsonPath("$.books[0].title", is(bookAt(user, 0).getTitle())))
+            .andExpect(jsonPath("$.books[1].title", is(bookAt(user, 1).getTitle())))
+            .andExpect(jsonPath("$.books[2].title", is(bookAt(user, 2).getTitle())))
+            .andExpect(header().string(HttpHeaders.ETAG, userETag));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenCurrentETag_whenGetUser_thenReturnNotModifiedWithoutLoadingIt() throws Exception {
+        mvc.perform(get(baseUrl+"{id}", user.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, userETag)
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, userETag));
+
+        verify(userRepository, never()).findWithBooksById(user.getId());
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenSmileAccept_whenGetUser_thenReturnSmileWithItsOwnETag() throws Exception {
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+
+        mvc.perform(get(baseUrl+"{id}", user.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, userETag)
+            .accept(smile))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(smile))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1-" + user.getVersionTag() + "+x-jackson-smile\""))
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenChangedBook_whenGetUserWithOldETag_thenReturnJson() throws Exception {
+        setVersion(1L, bookAt(user, 0));
+        given(userRepository.findVersionTagById(user.getId())).willReturn(Optional.of(user.getVersionTag()));
+
+        mvc.perform(get(baseUrl+"{id}", user.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, userETag)
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1-" + user.getVersionTag() + "\""));
     }
 
     @WithMockUser(username = "user", password = "1234")
@@ -215,9 +360,9 @@ public class UserControllerIntegrationTest {
             .andExpect(jsonPath("$.username", is(user.getUsername())))
             .andExpect(jsonPath("$.birthdate", is(user.getBirthdate().toString())))
             .andExpect(jsonPath("$.books", hasSize(user.getBooks().size())))
-            .andExpect(jsonPath("$.books[0].title", is(user.getBooks().get(0).getTitle())))
-            .andExpect(jsonPath("$.books[1].title", is(user.getBooks().get(1).getTitle())))
-            .andExpect(jsonPath("$.books[2].title", is(user.getBooks().get(2).getTitle())));
+            .andExpect(jsonPath("$.books[0].title", is(bookAt(user, 0).getTitle())))
+            .andExpect(jsonPath("$.books[1].title", is(bookAt(user, 1).getTitle())))
+            .andExpect(jsonPath("$.books[2].title", is(bookAt(user, 2).getTitle())));
     }
 
     @Test (expected = IllegalArgumentException.class)
@@ -233,6 +378,18 @@ public class UserControllerIntegrationTest {
             .andExpect(status().isBadRequest())
             .andExpect(status().reason(nullAttributesExReason));
     }
+
+    @Test
+    public void givenTakenUsername_whenCreateUser_thenFailWith409() throws Exception {
+        given(userRepository.save(any())).willThrow(new DataIntegrityViolationException("uk_users_username"));
+        given(userRepository.findFirstByUsername(user.getUsername())).willReturn(otherUser);
+
+        mvc.perform(post(baseUrl)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(user)))
+            .andExpect(status().isConflict())
+            .andExpect(status().reason("Username Already Taken"));
+    }
     //endregion
 
     //region update user
@@ -245,6 +402,7 @@ public class UserControllerIntegrationTest {
         String stringChangedUser = mapToJsonString(changedUser);
 
         given(userRepository.save(changedUser)).willReturn(changedUser);
+        given(bookRepository.findAllById(anyList())).willReturn(new ArrayList<>(user.getBooks()));
 
         mvc.perform(put(baseUrl+"{id}", user.getId())
             .contentType(MediaType.APPLICATION_JSON)
@@ -254,6 +412,8 @@ public class UserControllerIntegrationTest {
             .andExpect(jsonPath("$.username", is(changedUser.getUsername())))
             .andExpect(jsonPath("$.birthdate",  is(changedUser.getBirthdate().toString())))
             .andExpect(jsonPath("$.books", hasSize(changedUser.getBooks().size())));
+
+        verify(authenticationCache).invalidate(changedUser.getUsername());
     }
 
     @Test
@@ -270,6 +430,49 @@ public class UserControllerIntegrationTest {
             .andExpect(status().reason(idMismatchExReason));
     }
 
+    @Test
+    @WithMockUser(username = "user", password = "1234")
+    public void givenStaleIfMatch_whenUpdateUser_thenThrowPreconditionFailed() throws Exception {
+        mvc.perform(put(baseUrl+"{id}", user.getId())
+            .header(HttpHeaders.IF_MATCH, "\"1-1.0\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(user)))
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(status().reason(preconditionFailedExReason));
+
+        verify(userRepository, never()).save(user);
+        verify(authenticationCache, never()).invalidate(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", password = "1234")
+    public void givenConcurrentUpdate_whenUpdateUserWithIfMatch_thenThrowPreconditionFailed() throws Exception {
+        willThrow(new ObjectOptimisticLockingFailureException(User.class, user.getId()))
+            .given(userRepository).save(user);
+
+        mvc.perform(put(baseUrl+"{id}", user.getId())
+            .header(HttpHeaders.IF_MATCH, userETag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(user)))
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(status().reason(preconditionFailedExReason));
+    }
+
+    @Test
+    @WithMockUser(username = "user", password = "1234")
+    public void givenConcurrentUpdate_whenUpdateUserWithoutIfMatch_thenThrowConflict() throws Exception {
+        willThrow(new ObjectOptimisticLockingFailureException(User.class, user.getId()))
+            .given(userRepository).save(user);
+
+        mvc.perform(put(baseUrl+"{id}", user.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(mapToJsonString(user)))
+            .andExpect(status().isConflict())
+            .andExpect(status().reason("User Modified Concurrently"));
+
+        verify(authenticationCache, never()).invalidate(any());
+    }
+
     @Test
     @WithMockUser(username = "user", password = "1234")
     public void givenNonExistingId_whenUpdateUser_thenThrowNotFound() throws Exception {
@@ -319,6 +522,8 @@ public class UserControllerIntegrationTest {
         String jsonString = jo.toString();
 
         given(userRepository.findById(otherUser.getId())).willReturn(Optional.ofNullable(otherUser));
+        given(passwordHashingService.matches(oldPass, otherUser.getPassword())).willReturn(true);
+        given(passwordHashingService.hash(newPass)).willReturn(changedUser.getPassword());
         given(userRepository.save(changedUser)).willReturn(changedUser);
 
         mvc.perform(put(baseUrl+"editPass/{userId}", otherUser.getId())
@@ -329,6 +534,9 @@ public class UserControllerIntegrationTest {
             .andExpect(jsonPath("$.username", is(changedUser.getUsername())))
             .andExpect(jsonPath("$.birthdate",  is(changedUser.getBirthdate().toString())))
             .andExpect(jsonPath("$.books", hasSize(changedUser.getBooks().size())));
+
+        verify(authenticationCache).invalidate(otherUser.getUsername());
+        verify(tokenService).revoke(otherUser.getUsername());
     }
 
     @WithMockUser(username = "user", password = "1234")
@@ -408,7 +616,7 @@ public class UserControllerIntegrationTest {
     @WithMockUser(username = "user", password = "1234")
     @Test
     public void givenAlreadyOwnedBookId_givenUserId_whenAddBookToUser_thenThrowAlreadyOwned() throws Exception {
-        Book alreadyOwnedBook = user.getBooks().get(0);
+        Book alreadyOwnedBook = bookAt(user, 0);
 
         given(bookRepository.findById(alreadyOwnedBook.getId())).willReturn(Optional.of(alreadyOwnedBook));
 
@@ -417,13 +625,49 @@ public class UserControllerIntegrationTest {
             .andExpect(status().isAlreadyReported())
             .andExpect(status().reason(bookAlreadyOwnedExReason));
     }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenConcurrentChange_whenAddBookToUser_thenReadUserAgainAndReturnJson() throws Exception {
+        User reloadedUser = createDefaultUser(user.getId(), user.getName());
+        User changedUser = createDefaultUser(user.getId(), user.getName());
+        changedUser.addBook(book);
+
+        given(userRepository.findById(user.getId())).willReturn(Optional.of(user), Optional.of(reloadedUser));
+        given(userRepository.save(any(User.class)))
+            .willThrow(new ObjectOptimisticLockingFailureException(User.class, user.getId()))
+            .willReturn(changedUser);
+
+        mvc.perform(put(baseUrl+"{userId}/{bookId}", user.getId(), book.getId())
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.books", hasSize(changedUser.getBooks().size())));
+
+        verify(userRepository).save(reloadedUser);
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenConflictOnEveryAttempt_whenAddBookToUser_thenThrowConflict() throws Exception {
+        willAnswer(invocation -> Optional.of(createDefaultUser(user.getId(), user.getName())))
+            .given(userRepository).findById(user.getId());
+        willThrow(new ObjectOptimisticLockingFailureException(User.class, user.getId()))
+            .given(userRepository).save(any(User.class));
+
+        mvc.perform(put(baseUrl+"{userId}/{bookId}", user.getId(), book.getId())
+            .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isConflict())
+            .andExpect(status().reason(userUpdateConflictExReason));
+
+        verify(userRepository, times(10)).save(any(User.class));
+    }
     //endregion
 
     //region remove book
     @WithMockUser(username = "user", password = "1234")
     @Test
     public void givenBookId_givenUserId_whenRemoveBookFromUser_thenReturnJson() throws Exception {
-        Book removeBook = user.getBooks().get(0);
+        Book removeBook = bookAt(user, 0);
 
         User changedUser = createDefaultUser(user.getId(), user.getName());
         changedUser.removeBook(removeBook);
@@ -440,7 +684,7 @@ public class UserControllerIntegrationTest {
     @WithMockUser(username = "user", password = "1234")
     @Test
     public void givenNotInUserBookListBookId_givenUserId_whenRemoveBookFromUser_thenThrowBookNotFound() throws Exception{
-        Book removeBook = user.getBooks().get(0);
+        Book removeBook = bookAt(user, 0);
 
         User changedUser = createDefaultUser(user.getId(), user.getName());
         changedUser.removeBook(removeBook);
@@ -473,6 +717,61 @@ public class UserControllerIntegrationTest {
     }
     //endregion
 
+    //region bulk
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenStoredAndUnknownIds_whenDeleteAll_thenDeleteOnlyStoredUsers() throws Exception {
+        processInline(bulkProcessor);
+        given(userRepository.findAllById(anyList())).willReturn(Collections.singletonList(user));
+
+        mvc.perform(delete(baseUrl+"bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[" + user.getId() + ", " + nonExistingId + "]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status", is("DELETED")))
+            .andExpect(jsonPath("$[1].status", is("NOT_FOUND")));
+
+        verify(authenticationCache).invalidate(user.getUsername());
+        verify(tokenService).revoke(user.getUsername());
+    }
+    //endregion
+
+    //region library
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenBookId_givenUserId_whenAddBookToLibrary_thenReturnNoContent() throws Exception {
+        mvc.perform(put(baseUrl+"{userId}/books/{bookId}", user.getId(), book.getId()))
+            .andExpect(status().isNoContent());
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenAlreadyOwnedBookId_givenUserId_whenAddBookToLibrary_thenThrowAlreadyOwned() throws Exception {
+        willThrow(new BookAlreadyOwnedException()).given(userRepository).addBook(user.getId(), book.getId());
+
+        mvc.perform(put(baseUrl+"{userId}/books/{bookId}", user.getId(), book.getId()))
+            .andExpect(status().isAlreadyReported())
+            .andExpect(status().reason(bookAlreadyOwnedExReason));
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenBookId_givenUserId_whenRemoveBookFromLibrary_thenReturnNoContent() throws Exception {
+        mvc.perform(delete(baseUrl+"{userId}/books/{bookId}", user.getId(), book.getId()))
+            .andExpect(status().isNoContent());
+    }
+
+    @WithMockUser(username = "user", password = "1234")
+    @Test
+    public void givenNotOwnedBookId_givenUserId_whenRemoveBookFromLibrary_thenThrowBookNotFound() throws Exception {
+        willThrow(new BookNotFoundException()).given(userRepository).removeBook(user.getId(), book.getId());
+
+        mvc.perform(delete(baseUrl+"{userId}/books/{bookId}", user.getId(), book.getId()))
+            .andExpect(status().isNotFound())
+            .andExpect(status().reason(bookNotFoundExReason));
+    }
+    //endregion
+
     //region find user by birthdate between and name contains
     @WithMockUser(username = "user", password = "1234")
     @Test
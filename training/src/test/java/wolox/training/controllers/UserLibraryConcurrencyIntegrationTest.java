@@ -0,0 +1,132 @@
+package wolox.training.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import wolox.training.models.Book;
+import wolox.training.models.User;
+import wolox.training.repositories.BookRepository;
+import wolox.training.repositories.UserRepository;
+
+/**
+ * Adds thousands of books to a single user from many threads through the real endpoint and database. Every
+ * add has to end up in the library: without the version check the last save of two racing requests wins and
+ * the other book silently disappears. The attempts are raised so that even the unluckiest request gets through.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {"library.max-attempts=1000", "library.backoff-ms=1"})
+public class UserLibraryConcurrencyIntegrationTest {
+
+    private static final int BOOKS = 2000;
+
+    private static final int THREADS = 16;
+
+    private static final String ISBN_PREFIX = "concurrent-library-";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    private List<Book> books;
+
+    @Before
+    public void setUp() {
+        owner = userRepository.save(new User("Concurrent", "concurrent-library", LocalDate.of(1990, 5, 9), "1234"));
+
+        List<Book> newBooks = new ArrayList<>();
+        for(int i = 0; i < BOOKS; i++) {
+            newBooks.add(new Book("J. K. Rowling", "image.png", "Title " + i, "-", "Bloomsbury Publishing", "1997", 223,
+                ISBN_PREFIX + i, "Fantasy"));
+        }
+
+        books = new ArrayList<>();
+        bookRepository.saveAll(newBooks).forEach(books::add);
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM users_books WHERE users_id = ?", owner.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", owner.getId());
+        jdbcTemplate.update("DELETE FROM book WHERE isbn LIKE ?", ISBN_PREFIX + "%");
+    }
+
+    @Test
+    public void givenConcurrentAddsToOneUser_whenAddBookToUser_thenNoBookIsLost() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<Long, Integer> statuses = new ConcurrentHashMap<>();
+        List<Future<?>> adds = new ArrayList<>();
+
+        try {
+            for(Book book : books) {
+                adds.add(executor.submit(() -> {
+                    start.await();
+
+                    int status = mvc.perform(put("/api/users/{userId}/{bookId}", owner.getId(), book.getId())
+                        .with(user("user")))
+                        .andReturn().getResponse().getStatus();
+                    statuses.put(book.getId(), status);
+
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for(Future<?> add : adds) {
+                add.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<Long> added = statuses.entrySet().stream()
+            .filter(entry -> entry.getValue() == HttpStatus.OK.value())
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toSet());
+        Set<Long> library = jdbcTemplate.queryForList("SELECT books_id FROM users_books WHERE users_id = ?", Long.class,
+            owner.getId()).stream().collect(Collectors.toSet());
+
+        assertThat(statuses).hasSize(BOOKS);
+        assertThat(added).hasSize(BOOKS);
+        assertThat(library).isEqualTo(added);
+        assertThat(userRepository.findById(owner.getId()).map(User::getVersion)).contains(owner.getVersion() + BOOKS);
+    }
+
+}
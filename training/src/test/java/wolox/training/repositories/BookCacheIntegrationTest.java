@@ -0,0 +1,187 @@
+package wolox.training.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import wolox.training.models.Book;
+import wolox.training.services.BookSearchEngine;
+import wolox.training.services.BookUploadService;
+import wolox.training.services.CatalogFormat;
+
+/**
+ * Runs without a test transaction: the caches are only filled and invalidated when a transaction commits.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(BookUploadService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties =
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=wolox.training.repositories.CapturingStatementInspector")
+public class BookCacheIntegrationTest {
+
+    private static final String ISBN = "9780747532743";
+
+    private static final String OTHER_ISBN = "9780802130303";
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookUploadService bookUploadService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private BookSearchEngine bookSearchEngine;
+
+    private Book book;
+
+    @Before
+    public void setUp() {
+        book = bookRepository.save(new Book("J. K. Rowling", "image.png", "Harry Potter and the Philosopher's Stone",
+            "-", "Bloomsbury Publishing", "1997", 223, ISBN, "Fantasy"));
+        CapturingStatementInspector.clear();
+    }
+
+    @After
+    public void tearDown() {
+        bookRepository.deleteAll(bookRepository.findByIsbnIn(Arrays.asList(ISBN, OTHER_ISBN)));
+    }
+
+    @Test
+    public void givenBookReadOnce_whenFindById_thenAnswerFromTheCache() {
+        bookRepository.findById(book.getId());
+        CapturingStatementInspector.clear();
+
+        assertThat(bookRepository.findById(book.getId())).contains(book);
+        assertThat(CapturingStatementInspector.statements()).isEmpty();
+    }
+
+    @Test
+    public void givenIsbnLookedUpOnce_whenFindByIsbn_thenAnswerFromTheNaturalIdCache() {
+        bookRepository.findByIsbn(ISBN);
+        CapturingStatementInspector.clear();
+
+        assertThat(bookRepository.findByIsbn(ISBN).map(Book::getId)).contains(book.getId());
+        assertThat(CapturingStatementInspector.statements()).isEmpty();
+    }
+
+    @Test
+    public void givenFilterRunOnce_whenFindByPublisherGenreAndYear_thenAnswerFromTheQueryCache() {
+        bookRepository.findByPublisherAndGenreAndYear(book.getPublisher(), book.getGenre(), book.getYear(), null);
+        CapturingStatementInspector.clear();
+
+        assertThat(bookRepository.findByPublisherAndGenreAndYear(book.getPublisher(), book.getGenre(), book.getYear(), null))
+            .containsExactly(book);
+        assertThat(CapturingStatementInspector.statements()).isEmpty();
+    }
+
+    @Test
+    public void givenCachedFilter_whenBookIsCreated_thenQueryTheDatabaseAgain() {
+        bookRepository.findByPublisherAndGenreAndYear(book.getPublisher(), null, null, null);
+
+        Book otherBook = bookRepository.save(new Book("J. K. Rowling", "image.png", "Harry Potter and the Chamber of Secrets",
+            "-", "Bloomsbury Publishing", "1998", 251, OTHER_ISBN, "Fantasy"));
+
+        assertThat(bookRepository.findByPublisherAndGenreAndYear(book.getPublisher(), null, null, null))
+            .containsExactlyInAnyOrder(book, otherBook);
+    }
+
+    @Test
+    public void givenCachedFilter_whenBookIsUploaded_thenQueryTheDatabaseAgain() {
+        bookRepository.findByPublisherAndGenreAndYear("Editorial Sur", null, null, null);
+
+        String csv = "isbn,title,subtitle,author,publisher,year,pages,genre,image\r\n"
+            + OTHER_ISBN + ",Ficciones,-,Jorge Luis Borges,Editorial Sur,1944,203,,image.png\r\n";
+        bookUploadService.upload(CatalogFormat.CSV, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+            rejected -> { }, progress -> { });
+
+        assertThat(bookRepository.findByPublisherAndGenreAndYear("Editorial Sur", null, null, null))
+            .extracting(Book::getIsbn).containsExactly(OTHER_ISBN);
+    }
+
+    @Test
+    public void givenUncachedBook_whenStreamAll_thenLeaveItOutOfTheCache() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictEntityData(Book.class);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            try (Stream<Book> books = bookRepository.streamAll()) {
+                return books.count();
+            }
+        });
+
+        assertThat(sessionFactory.getCache().containsEntity(Book.class, book.getId())).isFalse();
+    }
+
+    @Test
+    public void givenCachedBook_whenUpdated_thenServeTheNewValues() {
+        bookRepository.findById(book.getId());
+        bookRepository.findByIsbn(ISBN);
+        bookRepository.findByPublisherAndGenreAndYear(null, null, "1997", null);
+
+        book.setYear("1998");
+        book.setTitle("Harry Potter and the Sorcerer's Stone");
+        bookRepository.save(book);
+
+        assertThat(bookRepository.findById(book.getId()).map(Book::getTitle)).contains("Harry Potter and the Sorcerer's Stone");
+        assertThat(bookRepository.findByIsbn(ISBN).map(Book::getYear)).contains("1998");
+        assertThat(bookRepository.findByPublisherAndGenreAndYear(null, null, "1997", null)).isEmpty();
+    }
+
+    @Test
+    public void givenCachedBook_whenUpdatedFromBookWithOtherIsbn_thenKeepItsIsbn() {
+        bookRepository.findByIsbn(ISBN);
+
+        Book received = new Book(book.getAuthor(), book.getImage(), "Harry Potter and the Sorcerer's Stone",
+            book.getSubtitle(), book.getPublisher(), book.getYear(), book.getPages(), OTHER_ISBN, book.getGenre());
+        book.updateFrom(received);
+        bookRepository.save(book);
+
+        assertThat(bookRepository.findByIsbn(ISBN).map(Book::getTitle)).contains("Harry Potter and the Sorcerer's Stone");
+        assertThat(bookRepository.findByIsbn(OTHER_ISBN)).isEmpty();
+    }
+
+    @Test
+    public void givenCachedBook_whenDeleted_thenFindNothing() {
+        bookRepository.findById(book.getId());
+        bookRepository.findByIsbn(ISBN);
+        bookRepository.findByPublisherAndGenreAndYear(book.getPublisher(), null, null, null);
+
+        bookRepository.deleteById(book.getId());
+
+        assertThat(bookRepository.findById(book.getId())).isEmpty();
+        assertThat(bookRepository.findByIsbn(ISBN)).isEmpty();
+        assertThat(bookRepository.findByPublisherAndGenreAndYear(book.getPublisher(), null, null, null)).isEmpty();
+    }
+
+}
@@ -2,6 +2,8 @@ package wolox.training.repositories;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import javax.persistence.PersistenceException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -11,9 +13,13 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.junit4.SpringRunner;
 import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.InvalidCursorException;
 import wolox.training.models.Book;
+import wolox.training.models.CursorPage;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -39,7 +45,7 @@ public class BookRepositoryIntegrationTest {
             "-", "Bloomsbury Publishing", "1997", 223, "9780747532743", "Fantasy");
 
         otherBook =  new Book("J. K. Rowling", "image.png", "Harry Potter and the Chamber of Secrets",
-            "-", "Bloomsbury Publishing", "1998", 223, "9780747532743", "Fantasy");
+            "-", "Bloomsbury Publishing", "1998", 223, "9780747538493", "Fantasy");
 
         anotherBook =  new Book("Jorge Luis Borges", "image.png", "The Aleph",
             "-", "Editorial Losada", "1949", 146, "9780307950932", "Short Story");
@@ -63,13 +69,22 @@ public class BookRepositoryIntegrationTest {
     public void givenNonExistingId_whenFindById_thenThrowBookNotFound() throws BookNotFoundException {
         Book bookFound = bookRepository.findById(nonExistingId).orElseThrow(BookNotFoundException::new);
     }
+
+    @Test
+    public void givenUpdatedBook_whenFindVersionById_thenReturnTheNewVersion() {
+        book.setTitle("Harry Potter and the Sorcerer's Stone");
+        entityManager.flush();
+
+        assertThat(bookRepository.findVersionById(book.getId())).contains(book.getVersion());
+        assertThat(book.getVersion()).isEqualTo(1L);
+    }
     //endregion
 
     //region save book
     @Test
     public void whenSaveBook_thenReturnBook(){
         Book newBook = new Book("J. K. Rowling", "image.png", "Harry Potter and the Prisoner of Azkaban",
-            "-", "Bloomsbury Publishing", "1999", 223, "9780747532743", "Fantasy");
+            "-", "Bloomsbury Publishing", "1999", 223, "9780747542155", "Fantasy");
 
         Book addedBook = bookRepository.save(newBook);
 
@@ -83,6 +98,15 @@ public class BookRepositoryIntegrationTest {
 
         Book addedBook = bookRepository.save(newBook);
     }
+
+    @Test(expected = PersistenceException.class)
+    public void givenAlreadyUsedIsbn_whenSaveBook_thenThrowConstraintViolation(){
+        Book newBook = new Book("J. K. Rowling", "image.png", "Harry Potter and the Philosopher's Stone",
+            "-", "Bloomsbury Publishing", "1997", 223, book.getIsbn(), "Fantasy");
+
+        bookRepository.save(newBook);
+        entityManager.flush();
+    }
     //endregion
 
     //region delete book
@@ -143,4 +167,47 @@ public class BookRepositoryIntegrationTest {
     }
     //endregion
 
+    //region seek books
+    @Test
+    public void givenAuthorAndPageSize_whenSeekByTitle_thenWalkEveryPageOnce() throws InvalidCursorException {
+        Specification<Book> filters = BookSpecifications.attributeEquals("author", "J. K. Rowling");
+
+        CursorPage<Book> firstPage = bookRepository.seek(filters, "title", Direction.ASC, null, 1);
+        CursorPage<Book> secondPage = bookRepository.seek(filters, "title", Direction.ASC, firstPage.getNextCursor(), 1);
+
+        assertThat(firstPage.getContent()).containsExactly(otherBook);
+        assertThat(firstPage.getNextCursor()).isNotNull();
+        assertThat(secondPage.getContent()).containsExactly(book);
+        assertThat(secondPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void givenDescendingPages_whenSeekByPages_thenBreakTiesById() throws InvalidCursorException {
+        Specification<Book> filters = BookSpecifications.attributeEquals("pages", 223);
+
+        CursorPage<Book> firstPage = bookRepository.seek(filters, "pages", Direction.DESC, null, 1);
+        CursorPage<Book> secondPage = bookRepository.seek(filters, "pages", Direction.DESC, firstPage.getNextCursor(), 5);
+
+        assertThat(firstPage.getContent()).containsExactly(otherBook);
+        assertThat(secondPage.getContent()).containsExactly(book);
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void givenCursorOfOtherSort_whenSeek_thenThrowInvalidCursor() throws InvalidCursorException {
+        String cursor = bookRepository.seek(null, "title", Direction.ASC, null, 1).getNextCursor();
+
+        bookRepository.seek(null, "year", Direction.ASC, cursor, 1);
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void givenTamperedCursor_whenSeek_thenThrowInvalidCursor() throws InvalidCursorException {
+        bookRepository.seek(null, "title", Direction.ASC, "not-a-cursor", 1);
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void givenNonSortableAttribute_whenSeek_thenThrowInvalidCursor() throws InvalidCursorException {
+        bookRepository.seek(null, "genre", Direction.ASC, null, 1);
+    }
+    //endregion
+
 }
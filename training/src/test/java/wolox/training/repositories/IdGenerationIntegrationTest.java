@@ -0,0 +1,68 @@
+package wolox.training.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import wolox.training.models.Book;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@TestPropertySource(properties =
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=wolox.training.repositories.CapturingStatementInspector")
+public class IdGenerationIntegrationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        CapturingStatementInspector.clear();
+    }
+
+    @Test
+    public void givenNewBooks_whenPersist_thenTakeConsecutiveIdsFromOneSequenceCall() {
+        Long firstId = entityManager.persistAndGetId(book("9780000000001"), Long.class);
+        Long secondId = entityManager.persistAndGetId(book("9780000000002"), Long.class);
+
+        assertThat(secondId).isEqualTo(firstId + 1);
+        assertThat(sequenceCalls()).hasSize(1);
+    }
+
+    @Test
+    public void givenIdsHandedOut_whenAnotherWriterCallsNextval_thenItGetsAnIdPastTheBlock() {
+        Long firstId = entityManager.persistAndGetId(book("9780000000003"), Long.class);
+
+        Long externalId = jdbcTemplate.queryForObject("SELECT nextval('book_seq')", Long.class);
+
+        assertThat(externalId).isGreaterThanOrEqualTo(firstId + 50);
+    }
+
+    //region private methods
+    private Book book(String isbn) {
+        return new Book("Author", "image.png", "Title " + isbn, "-", "Publisher", "2000", 100, isbn, "Fiction");
+    }
+
+    private List<String> sequenceCalls() {
+        return CapturingStatementInspector.statements().stream()
+            .filter(sql -> sql.contains("book_seq"))
+            .collect(Collectors.toList());
+    }
+    //endregion
+
+}
@@ -0,0 +1,200 @@
+package wolox.training.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import wolox.training.exceptions.InvalidCursorException;
+import wolox.training.models.Book;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@TestPropertySource(properties =
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=wolox.training.repositories.CapturingStatementInspector")
+public class QueryPlanIntegrationTest {
+
+    private static final String PREPARED_NAME = "plan_under_test";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Book book;
+
+    @Before
+    public void setUp() {
+        book =  new Book("J. K. Rowling", "image.png", "Harry Potter and the Philosopher's Stone",
+            "-", "Bloomsbury Publishing", "1997", 223, "9780747532743", "Fantasy");
+
+        entityManager.persist(book);
+        entityManager.flush();
+        CapturingStatementInspector.clear();
+    }
+
+    //region books
+    @Test
+    public void givenOnlyIsbn_whenFindAll_thenFilterOnlyByIsbnThroughItsIndex() {
+        assertThat(bookRepository.findAll(null, null, null, null, null, null, null, null, book.getIsbn(), null)).containsExactly(book);
+
+        String sql = lastQuery();
+
+        assertThat(sql.toLowerCase()).doesNotContain("is null").containsOnlyOnce("=?");
+        assertThat(explain(sql, book.getIsbn())).contains("uk_book_isbn");
+    }
+
+    @Test
+    public void givenOnlyAuthor_whenFindAll_thenUseAuthorIndex() {
+        bookRepository.findAll(book.getAuthor(), null, null, null, null, null, null, null, null, null);
+
+        assertThat(explain(lastQuery(), book.getAuthor())).contains("idx_book_author");
+    }
+
+    @Test
+    public void givenPublisherGenreAndYear_whenFindByPublisherGenreAndYear_thenUseCompositeIndex() {
+        bookRepository.findByPublisherAndGenreAndYear(book.getPublisher(), book.getGenre(), book.getYear(), null);
+
+        assertThat(explain(lastQuery(), book.getPublisher(), book.getGenre(), book.getYear()))
+            .contains("idx_book_publisher_genre_year");
+    }
+
+    @Test
+    public void givenNoFilters_whenFindAll_thenQueryHasNoWhereClause() {
+        bookRepository.findAll(null, null, null, null, null, null, null, null, null, null);
+
+        assertThat(lastQuery().toLowerCase()).doesNotContain(" where ");
+    }
+
+    @Test
+    public void givenCursor_whenSeekByTitle_thenStartIndexScanAtTheCursor() throws InvalidCursorException {
+        String cursor = new KeysetCursor("title", Direction.ASC, book.getTitle(), book.getId()).encode();
+
+        bookRepository.seek(null, "title", Direction.ASC, cursor, 20);
+
+        assertThat(explain(lastQuery(), book.getTitle(), book.getTitle(), book.getId().toString(), "21"))
+            .contains("Index Scan using idx_book_title_id")
+            .contains("Index Cond")
+            .doesNotContain("Sort Key");
+    }
+
+    @Test
+    public void givenPublisherAndYear_whenFindByPublisherGenreAndYear_thenFilterOnlyBySuppliedColumns() {
+        bookRepository.findByPublisherAndGenreAndYear(book.getPublisher(), null, book.getYear(), null);
+
+        String sql = lastQuery().toLowerCase();
+
+        assertThat(sql).doesNotContain("is null").doesNotContain("genre=?");
+        assertThat(sql).contains("publisher=?").contains("year=?");
+    }
+    //endregion
+
+    //region users
+    @Test
+    public void givenUsername_whenFindFirstByUsername_thenUseUsernameIndex() {
+        userRepository.findFirstByUsername("Nick27");
+
+        // derived findFirst queries also bind the limit
+        assertThat(explain(lastQuery(), "Nick27", "1")).contains("uk_users_username");
+    }
+
+    @Test
+    public void givenCharacters_whenFindByBirthdateBetweenAndNameContains_thenUseTrigramIndex() {
+        userRepository.findByBirthdateBetweenAndNameContains(null, null, "ick", null);
+
+        assertThat(explain(lastQuery(), "%ick%")).contains("idx_users_name_trgm");
+    }
+
+    @Test
+    public void givenCursor_whenSeekByNameDescending_thenStartIndexScanAtTheCursor() throws InvalidCursorException {
+        String cursor = new KeysetCursor("name", Direction.DESC, "Nick", 1L).encode();
+
+        userRepository.seek("name", Direction.DESC, cursor, 20);
+
+        // the page query, the books of the page are fetched after it
+        String sql = CapturingStatementInspector.statements().get(0);
+
+        assertThat(explain(sql, "Nick", "Nick", "1", "21"))
+            .contains("Index Scan Backward using idx_users_name_id")
+            .contains("Index Cond")
+            .doesNotContain("Sort Key");
+    }
+
+    @Test
+    public void givenOnlyFromDate_whenFindByBirthdateBetweenAndNameContains_thenFilterOnlyByBirthdate() {
+        userRepository.findByBirthdateBetweenAndNameContains(LocalDate.of(1990, 1, 1), null, null, null);
+
+        String sql = lastQuery().toLowerCase();
+
+        assertThat(sql).doesNotContain("is null").doesNotContain(" like ").containsOnlyOnce("birthdate>=?");
+    }
+    //endregion
+
+    //region private methods
+    private String lastQuery() {
+        List<String> statements = CapturingStatementInspector.statements();
+
+        return statements.get(statements.size() - 1);
+    }
+
+    /**
+     * Prepares the captured statement server side and explains its execution. The plan is taken from the sixth
+     * execution, once PostgreSQL may have switched the prepared statement to its generic plan.
+     * @param sql statement with JDBC {@code ?} placeholders
+     * @param parameters literal values for the placeholders
+     * @return the plan as text
+     */
+    private String explain(String sql, String... parameters) {
+        StringBuilder numbered = new StringBuilder();
+        int index = 0;
+
+        for(char c : sql.toCharArray()) {
+            if(c == '?') {
+                numbered.append('$').append(++index);
+            } else {
+                numbered.append(c);
+            }
+        }
+
+        StringBuilder arguments = new StringBuilder();
+        for(String parameter : parameters) {
+            arguments.append(arguments.length() == 0 ? "" : ", ").append('\'').append(parameter.replace("'", "''")).append('\'');
+        }
+
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        jdbcTemplate.execute("PREPARE " + PREPARED_NAME + " AS " + numbered);
+
+        try {
+            List<String> plan = null;
+
+            for(int i = 0; i < 6; i++) {
+                plan = jdbcTemplate.queryForList("EXPLAIN EXECUTE " + PREPARED_NAME + "(" + arguments + ")", String.class);
+            }
+
+            return String.join("\n", plan);
+        } finally {
+            jdbcTemplate.execute("DEALLOCATE " + PREPARED_NAME);
+        }
+    }
+    //endregion
+
+}
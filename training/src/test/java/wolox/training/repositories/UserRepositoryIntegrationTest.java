@@ -3,6 +3,7 @@ package wolox.training.repositories;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.LocalDate;
+import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,10 +15,14 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 import org.springframework.test.context.junit4.SpringRunner;
 import wolox.training.exceptions.BookAlreadyOwnedException;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.InvalidCursorException;
 import wolox.training.exceptions.UserNotFoundException;
 import wolox.training.models.Book;
+import wolox.training.models.CursorPage;
 import wolox.training.models.User;
 
 @RunWith(SpringRunner.class)
@@ -50,7 +55,7 @@ public class UserRepositoryIntegrationTest {
             "-", "Bloomsbury Publishing", "1997", 223, "9780747532743", "Fantasy");
 
         otherBook =  new Book("J. K. Rowling", "image.png", "Harry Potter and the Chamber of Secrets",
-            "-", "Bloomsbury Publishing", "1998", 223, "9780747532743", "Fantasy");
+            "-", "Bloomsbury Publishing", "1998", 223, "9780747538493", "Fantasy");
 
         user.addBook(book);
         user.addBook(otherBook);
@@ -70,6 +75,18 @@ public class UserRepositoryIntegrationTest {
     }
     //endregion
 
+    //region seek users
+    @Test
+    public void givenPageSize_whenSeekByBirthdate_thenWalkEveryPageOnce() throws InvalidCursorException {
+        CursorPage<User> firstPage = userRepository.seek("birthdate", Direction.ASC, null, 1);
+        CursorPage<User> secondPage = userRepository.seek("birthdate", Direction.ASC, firstPage.getNextCursor(), 1);
+
+        assertThat(firstPage.getContent()).containsExactly(otherUser);
+        assertThat(secondPage.getContent()).containsExactly(user);
+        assertThat(secondPage.getNextCursor()).isNull();
+    }
+    //endregion
+
 
     //region find user by id
     @Test
@@ -148,4 +165,87 @@ public class UserRepositoryIntegrationTest {
             Sort.by("birthdate")))).hasSize(1);
     }
     //endregion
+
+    //region library
+    @Test
+    public void givenNotOwnedBook_whenAddBook_thenUserOwnsIt() throws Exception {
+        userRepository.addBook(otherUser.getId(), otherBook.getId());
+        entityManager.clear();
+
+        assertThat(userRepository.findById(otherUser.getId()).get().getBooks()).containsOnly(book, otherBook);
+    }
+
+    @Test(expected = BookAlreadyOwnedException.class)
+    public void givenOwnedBook_whenAddBook_thenThrowAlreadyOwned() throws Exception {
+        userRepository.addBook(user.getId(), book.getId());
+    }
+
+    @Test(expected = BookNotFoundException.class)
+    public void givenNonExistingBookId_whenAddBook_thenThrowBookNotFound() throws Exception {
+        userRepository.addBook(user.getId(), nonExistingId);
+    }
+
+    @Test(expected = UserNotFoundException.class)
+    public void givenNonExistingUserId_whenAddBook_thenThrowUserNotFound() throws Exception {
+        userRepository.addBook(nonExistingId, book.getId());
+    }
+
+    @Test
+    public void givenOwnedBook_whenRemoveBook_thenUserNoLongerOwnsIt() throws Exception {
+        userRepository.removeBook(user.getId(), book.getId());
+        entityManager.clear();
+
+        assertThat(userRepository.findById(user.getId()).get().getBooks()).containsOnly(otherBook);
+    }
+
+    @Test(expected = BookNotFoundException.class)
+    public void givenNotOwnedBook_whenRemoveBook_thenThrowBookNotFound() throws Exception {
+        userRepository.removeBook(otherUser.getId(), otherBook.getId());
+    }
+    //endregion
+
+    //region versions
+    @Test
+    public void givenUserWithBooks_whenFindVersionTagById_thenMatchTheLoadedUser() {
+        String versionTag = userRepository.findVersionTagById(user.getId()).get();
+        entityManager.clear();
+
+        assertThat(versionTag).isEqualTo(userRepository.findById(user.getId()).get().getVersionTag());
+    }
+
+    @Test
+    public void givenUser_whenAddBook_thenChangeItsVersionTag() throws Exception {
+        String versionTag = userRepository.findVersionTagById(otherUser.getId()).get();
+
+        userRepository.addBook(otherUser.getId(), otherBook.getId());
+
+        assertThat(userRepository.findVersionTagById(otherUser.getId())).isNotEqualTo(Optional.of(versionTag));
+    }
+
+    @Test
+    public void givenOwnedBookEdited_whenFindVersionTagById_thenChangeIt() {
+        String versionTag = userRepository.findVersionTagById(user.getId()).get();
+
+        Book ownedBook = entityManager.find(Book.class, book.getId());
+        ownedBook.setTitle("Harry Potter and the Sorcerer's Stone");
+        entityManager.flush();
+
+        assertThat(userRepository.findVersionTagById(user.getId())).isNotEqualTo(Optional.of(versionTag));
+    }
+
+    @Test
+    public void givenUserWithoutBooks_whenFindVersionTagById_thenMatchTheLoadedUser() {
+        User reader = entityManager.persistAndFlush(new User("Ana", "ana1990", LocalDate.of(1990, 1, 2), "1234"));
+
+        String versionTag = userRepository.findVersionTagById(reader.getId()).get();
+        entityManager.clear();
+
+        assertThat(versionTag).isEqualTo(userRepository.findById(reader.getId()).get().getVersionTag());
+    }
+
+    @Test
+    public void givenNonExistingId_whenFindVersionTagById_thenReturnEmpty() {
+        assertThat(userRepository.findVersionTagById(nonExistingId)).isEmpty();
+    }
+    //endregion
 }
@@ -0,0 +1,176 @@
+package wolox.training.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import wolox.training.exceptions.BookAlreadyOwnedException;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.InvalidCursorException;
+import wolox.training.models.Book;
+import wolox.training.models.User;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@TestPropertySource(properties =
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=wolox.training.repositories.CapturingStatementInspector")
+public class UserStatementsIntegrationTest {
+
+    private static final int USERS = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long firstUserId;
+
+    private Long spareBookId;
+
+    @Before
+    public void setUp() throws BookAlreadyOwnedException {
+        for(int i = 0; i < USERS; i++) {
+            User user = new User("Reader " + i, "reader" + i, LocalDate.of(1990 + i, 1, 1), "1234");
+
+            user.addBook(new Book("J. K. Rowling", "image.png", "Book " + i, "-", "Bloomsbury Publishing",
+                "1997", 223, "97807475" + (10000 + 2 * i), "Fantasy"));
+            user.addBook(new Book("J. K. Rowling", "image.png", "Other book " + i, "-", "Bloomsbury Publishing",
+                "1998", 223, "97807475" + (10001 + 2 * i), "Fantasy"));
+
+            entityManager.persist(user);
+
+            if(firstUserId == null) {
+                firstUserId = user.getId();
+            }
+        }
+
+        spareBookId = entityManager.persistAndGetId(new Book("J. K. Rowling", "image.png", "Spare book", "-",
+            "Bloomsbury Publishing", "1999", 223, "9780747599999", "Fantasy"), Long.class);
+
+        entityManager.flush();
+        entityManager.clear();
+        CapturingStatementInspector.clear();
+    }
+
+    //region loading
+    @Test
+    public void givenUsersWithBooks_whenFindAllUsersAndReadTheirBooks_thenRunTwoQueries() {
+        List<User> users = userRepository.findAllUsers(PageRequest.of(0, USERS, Sort.by("id")));
+
+        assertThat(users).hasSize(USERS);
+        assertThat(bookCounts(users)).containsOnly(2);
+        assertThat(selects()).hasSize(2);
+    }
+
+    @Test
+    public void givenUsersWithBooks_whenFindByBirthdateAndNameAndReadTheirBooks_thenRunTwoQueries() {
+        List<User> users = userRepository.findByBirthdateBetweenAndNameContains(LocalDate.of(1990, 1, 1),
+            LocalDate.of(1992, 1, 1), "Reader", PageRequest.of(0, USERS, Sort.by("birthdate")));
+
+        assertThat(users).extracting(User::getUsername).containsExactly("reader0", "reader1", "reader2");
+        assertThat(bookCounts(users)).containsOnly(2);
+        assertThat(selects()).hasSize(2);
+    }
+
+    @Test
+    public void givenUsersWithBooks_whenSeekAndReadTheirBooks_thenRunTwoQueries() throws InvalidCursorException {
+        List<User> users = userRepository.seek("id", Direction.ASC, null, USERS).getContent();
+
+        assertThat(bookCounts(users)).hasSize(USERS).containsOnly(2);
+        assertThat(selects()).hasSize(2);
+    }
+
+    @Test
+    public void givenUserWithBooks_whenFindWithBooksByIdAndReadItsBooks_thenRunOneQuery() {
+        User user = userRepository.findWithBooksById(firstUserId).get();
+
+        assertThat(user.getBooks()).hasSize(2);
+        assertThat(selects()).hasSize(1);
+    }
+
+    @Test
+    public void givenUserWithBooks_whenFindById_thenLeaveItsBooksUnloaded() {
+        User user = userRepository.findById(firstUserId).get();
+
+        assertThat(entityManager.getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil()
+            .isLoaded(user, "books")).isFalse();
+        assertThat(selects()).hasSize(1);
+    }
+    //endregion
+
+    //region book ownership
+    @Test
+    public void givenUserWithBooks_whenAddBook_thenInsertOnlyThatJoinRow() throws BookAlreadyOwnedException {
+        User user = userRepository.findById(firstUserId).get();
+
+        user.addBook(entityManager.find(Book.class, spareBookId));
+        entityManager.flush();
+
+        assertThat(statementsOn("insert into users_books")).hasSize(1);
+        assertThat(statementsOn("delete from users_books")).isEmpty();
+    }
+
+    @Test
+    public void givenUserWithBooks_whenRemoveBook_thenDeleteOnlyThatJoinRow() throws BookNotFoundException {
+        User user = userRepository.findById(firstUserId).get();
+
+        user.removeBook(user.getBooks().iterator().next());
+        entityManager.flush();
+
+        assertThat(statementsOn("delete from users_books")).hasSize(1);
+        assertThat(statementsOn("insert into users_books")).isEmpty();
+    }
+
+    @Test
+    public void givenUserWithBooks_whenAddBookById_thenRunOnlyTheInsert() throws Exception {
+        userRepository.addBook(firstUserId, spareBookId);
+
+        assertThat(CapturingStatementInspector.statements()).hasSize(1);
+        assertThat(CapturingStatementInspector.statements().get(0).toLowerCase())
+            .contains("insert into users_books").contains("update users set version");
+    }
+
+    @Test(expected = BookAlreadyOwnedException.class)
+    public void givenOwnedBookLoadedAgain_whenAddBook_thenThrowAlreadyOwned() throws BookAlreadyOwnedException {
+        User user = userRepository.findById(firstUserId).get();
+        Book owned = user.getBooks().iterator().next();
+
+        entityManager.detach(owned);
+
+        user.addBook(entityManager.find(Book.class, owned.getId()));
+    }
+    //endregion
+
+    //region private methods
+    private List<Integer> bookCounts(List<User> users) {
+        return users.stream().map(user -> user.getBooks().size()).collect(Collectors.toList());
+    }
+
+    private List<String> selects() {
+        return statementsOn("select");
+    }
+
+    private List<String> statementsOn(String prefix) {
+        return CapturingStatementInspector.statements().stream()
+            .filter(sql -> sql.trim().toLowerCase().startsWith(prefix))
+            .collect(Collectors.toList());
+    }
+    //endregion
+
+}
@@ -0,0 +1,80 @@
+package wolox.training.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.MutableClock;
+
+public class AuthenticationCacheTest {
+
+    private AuthenticationCache authenticationCache;
+
+    private MutableClock clock;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2019-05-01T10:00:00Z"));
+
+        authenticationCache = new AuthenticationCache();
+        ReflectionTestUtils.setField(authenticationCache, "maxSize", 2L);
+        ReflectionTestUtils.setField(authenticationCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(authenticationCache, "clock", clock);
+        authenticationCache.init();
+    }
+
+    @Test
+    public void givenVerifiedCredentials_whenIsVerified_thenHit() {
+        authenticationCache.markVerified("user", "1234");
+
+        assertThat(authenticationCache.isVerified("user", "1234")).isTrue();
+    }
+
+    @Test
+    public void givenNothingCached_whenIsVerified_thenMiss() {
+        assertThat(authenticationCache.isVerified("user", "1234")).isFalse();
+    }
+
+    @Test
+    public void givenOtherPasswordCached_whenIsVerified_thenMiss() {
+        authenticationCache.markVerified("user", "1234");
+
+        assertThat(authenticationCache.isVerified("user", "4321")).isFalse();
+        assertThat(authenticationCache.isVerified("other", "1234")).isFalse();
+    }
+
+    @Test
+    public void givenTtlElapsed_whenIsVerified_thenMiss() {
+        authenticationCache.markVerified("user", "1234");
+
+        clock.advance(Duration.ofSeconds(299));
+        assertThat(authenticationCache.isVerified("user", "1234")).isTrue();
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(authenticationCache.isVerified("user", "1234")).isFalse();
+    }
+
+    @Test
+    public void givenInvalidatedUser_whenIsVerified_thenMiss() {
+        authenticationCache.markVerified("user", "1234");
+        authenticationCache.markVerified("other", "1234");
+
+        authenticationCache.invalidate("user");
+
+        assertThat(authenticationCache.isVerified("user", "1234")).isFalse();
+        assertThat(authenticationCache.isVerified("other", "1234")).isTrue();
+    }
+
+    @Test
+    public void givenNullUsername_whenInvalidate_thenKeepEveryEntry() {
+        authenticationCache.markVerified("user", "1234");
+
+        authenticationCache.invalidate(null);
+
+        assertThat(authenticationCache.isVerified("user", "1234")).isTrue();
+    }
+
+}
@@ -0,0 +1,90 @@
+package wolox.training.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TokenAuthenticationFilterTest {
+
+    @Mock
+    private TokenService tokenService;
+
+    private TokenAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private MockFilterChain filterChain;
+
+    @Before
+    public void setUp() {
+        filter = new TokenAuthenticationFilter(tokenService);
+        request = new MockHttpServletRequest("GET", "/api/books/");
+        response = new MockHttpServletResponse();
+        filterChain = new MockFilterChain();
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void givenValidBearerToken_whenFilter_thenAuthenticateUser() throws Exception {
+        given(tokenService.verify("valid-token")).willReturn("user");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer valid-token");
+
+        filter.doFilter(request, response, filterChain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getName()).isEqualTo("user");
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    public void givenRejectedBearerToken_whenFilter_thenContinueUnauthenticated() throws Exception {
+        given(tokenService.verify("tampered-token")).willReturn(null);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer tampered-token");
+
+        filter.doFilter(request, response, filterChain);
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    public void givenBasicCredentials_whenFilter_thenLeaveThemToBasicAuth() throws Exception {
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Basic dXNlcjoxMjM0");
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(tokenService, never()).verify(any());
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    public void givenNoAuthorizationHeader_whenFilter_thenContinueUnauthenticated() throws Exception {
+        filter.doFilter(request, response, filterChain);
+
+        verify(tokenService, never()).verify(any());
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+
+}
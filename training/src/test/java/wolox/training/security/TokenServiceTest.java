@@ -0,0 +1,149 @@
+package wolox.training.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.MutableClock;
+import wolox.training.models.AuthToken;
+
+public class TokenServiceTest {
+
+    private TokenService tokenService;
+
+    private MutableClock clock;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2019-05-01T10:00:00Z"));
+
+        tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "secret", "test-secret");
+        ReflectionTestUtils.setField(tokenService, "ttlSeconds", 3600L);
+        ReflectionTestUtils.setField(tokenService, "clock", clock);
+        tokenService.init();
+    }
+
+    @Test
+    public void givenIssuedToken_whenVerify_thenReturnUsername() {
+        AuthToken authToken = tokenService.issue("user");
+
+        assertThat(authToken.getExpiresAt()).isEqualTo(clock.instant().getEpochSecond() + 3600);
+        assertThat(tokenService.verify(authToken.getToken())).isEqualTo("user");
+    }
+
+    @Test
+    public void givenUsernameWithColons_whenVerify_thenReturnWholeUsername() {
+        assertThat(tokenService.verify(tokenService.issue("a:b:c").getToken())).isEqualTo("a:b:c");
+    }
+
+    @Test
+    public void givenExpiredToken_whenVerify_thenReturnNull() {
+        String token = tokenService.issue("user").getToken();
+
+        clock.advance(Duration.ofSeconds(3600));
+        assertThat(tokenService.verify(token)).isEqualTo("user");
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(tokenService.verify(token)).isNull();
+    }
+
+    @Test
+    public void givenTamperedPayload_whenVerify_thenReturnNull() {
+        String token = tokenService.issue("user").getToken();
+        String signature = token.substring(token.indexOf('.') + 1);
+        String claims = decode(token.substring(0, token.indexOf('.')));
+
+        String forged = encode(claims.replaceFirst("^user:", "admin:")) + "." + signature;
+
+        assertThat(tokenService.verify(forged)).isNull();
+    }
+
+    @Test
+    public void givenTamperedSignature_whenVerify_thenReturnNull() {
+        String token = tokenService.issue("user").getToken();
+        int signatureIndex = token.indexOf('.') + 1;
+        char first = token.charAt(signatureIndex);
+
+        assertThat(tokenService.verify(token.substring(0, signatureIndex) + (first == 'A' ? 'B' : 'A')
+            + token.substring(signatureIndex + 1))).isNull();
+    }
+
+    @Test
+    public void givenTokenSignedWithOtherSecret_whenVerify_thenReturnNull() {
+        String token = tokenService.issue("user").getToken();
+
+        ReflectionTestUtils.setField(tokenService, "secret", "other-secret");
+        tokenService.init();
+
+        assertThat(tokenService.verify(token)).isNull();
+    }
+
+    @Test
+    public void givenMalformedTokens_whenVerify_thenReturnNull() {
+        assertThat(tokenService.verify(tokenService.issue("user").getToken())).isEqualTo("user");
+
+        assertThat(tokenService.verify("")).isNull();
+        assertThat(tokenService.verify("no-separator")).isNull();
+        assertThat(tokenService.verify("not base64!.not base64!")).isNull();
+        assertThat(tokenService.verify(".")).isNull();
+        assertThat(tokenService.verify(signed("user"))).isNull();
+        assertThat(tokenService.verify(signed("user:soon:1556708400"))).isNull();
+        assertThat(tokenService.verify(signed("user:1556704800000:later"))).isNull();
+    }
+
+    @Test
+    public void givenRevokedUser_whenVerify_thenRejectOnlyTokensIssuedBefore() {
+        String revoked = tokenService.issue("user").getToken();
+        String other = tokenService.issue("other").getToken();
+
+        clock.advance(Duration.ofMillis(1));
+        tokenService.revoke("user");
+        clock.advance(Duration.ofMillis(1));
+        String reissued = tokenService.issue("user").getToken();
+
+        assertThat(tokenService.verify(revoked)).isNull();
+        assertThat(tokenService.verify(other)).isEqualTo("other");
+        assertThat(tokenService.verify(reissued)).isEqualTo("user");
+    }
+
+    @Test
+    public void givenRevokedUser_whenTokenTtlPasses_thenStillRejectTokensIssuedBefore() {
+        String token = tokenService.issue("user").getToken();
+
+        clock.advance(Duration.ofMillis(1));
+        tokenService.revoke("user");
+
+        clock.advance(Duration.ofMillis(3600 * 1000 - 1));
+        assertThat(tokenService.verify(token)).isNull();
+
+        clock.advance(Duration.ofMillis(999));
+        assertThat(tokenService.verify(token)).isNull();
+    }
+
+    //region private methods
+    /**
+     * Correctly signed claims, to reach the checks that run after the signature.
+     */
+    private String signed(String claims) {
+        byte[] payload = claims.getBytes(StandardCharsets.UTF_8);
+        byte[] signature = (byte[]) ReflectionTestUtils.invokeMethod(tokenService, "sign", (Object) payload);
+
+        return encode(claims) + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private String encode(String claims) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decode(String encoded) {
+        return new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+    }
+    //endregion
+
+}
@@ -0,0 +1,88 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import wolox.training.models.Book;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@Import(BookExportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class BookExportServiceIntegrationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    private Book book;
+    private Book otherBook;
+
+    @Before
+    public void setUp() {
+        book =  new Book("J. K. Rowling", "image.png", "Harry Potter and the Philosopher's Stone",
+            "-", "Bloomsbury Publishing", "1997", 223, "9780747532743", "Fantasy");
+
+        otherBook =  new Book("Jorge Luis Borges", "image.png", "Ficciones, \"the\" collection",
+            "-", "Editorial Sur", "1944", 203, "9780802130303", null);
+
+        entityManager.persist(book);
+        entityManager.persist(otherBook);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void givenBooks_whenExportNdjson_thenWriteOneLinePerBookInIdOrder() throws IOException {
+        String[] lines = export(CatalogFormat.NDJSON).split("\n");
+
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{").contains("\"isbn\":\"" + book.getIsbn() + "\"");
+        assertThat(lines[1]).startsWith("{").contains("\"isbn\":\"" + otherBook.getIsbn() + "\"");
+    }
+
+    @Test
+    public void givenBooks_whenExportCsv_thenWriteHeaderAndQuotedRows() throws IOException {
+        String[] lines = export(CatalogFormat.CSV).split("\r\n");
+
+        assertThat(lines).containsExactly(
+            "id,isbn,title,subtitle,author,publisher,year,pages,genre,image",
+            book.getId() + ",9780747532743,Harry Potter and the Philosopher's Stone,-,J. K. Rowling,Bloomsbury Publishing,1997,223,Fantasy,image.png",
+            otherBook.getId() + ",9780802130303,\"Ficciones, \"\"the\"\" collection\",-,Jorge Luis Borges,Editorial Sur,1944,203,,image.png");
+    }
+
+    @Test
+    public void givenBooks_whenExport_thenLeaveNothingInThePersistenceContext() throws IOException {
+        export(CatalogFormat.NDJSON);
+
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    //region private methods
+    private String export(CatalogFormat format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bookExportService.export(format, outputStream);
+
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+    //endregion
+
+}
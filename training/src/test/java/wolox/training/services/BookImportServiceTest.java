@@ -0,0 +1,227 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.exceptions.BookLookupRejectedException;
+import wolox.training.exceptions.TooManyIsbnsException;
+import wolox.training.models.Book;
+import wolox.training.models.BookDTO;
+import wolox.training.models.IsbnImportResult;
+import wolox.training.models.IsbnImportResult.Status;
+import wolox.training.repositories.BookRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BookImportServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private OpenLibraryService openLibraryService;
+
+    @Mock
+    private BookSearchEngine bookSearchEngine;
+
+    @InjectMocks
+    private BookImportService bookImportService;
+
+    private BookDTO bookDTO;
+    private String isbn;
+    private int concurrentClients;
+    private ExecutorService clients;
+
+    @Before
+    public void setUp() {
+        isbn = "0385472579";
+        concurrentClients = 32;
+        clients = Executors.newFixedThreadPool(concurrentClients);
+
+        ReflectionTestUtils.setField(bookImportService, "maxIsbns", 3);
+        ReflectionTestUtils.setField(bookImportService, "batchSize", 1);
+        ReflectionTestUtils.setField(bookImportService, "concurrency", 2);
+        ReflectionTestUtils.setField(bookImportService, "lookupThreads", 1);
+        ReflectionTestUtils.setField(bookImportService, "lookupQueueCapacity", 1);
+        bookImportService.init();
+
+        List<String> publishers = new ArrayList<>();
+        publishers.add("Anchor Books");
+
+        List<String> authors = new ArrayList<>();
+        authors.add("Zhizhong Cai");
+
+        bookDTO = new BookDTO();
+        bookDTO.setISBN(isbn);
+        bookDTO.setTitle("Zen speaks");
+        bookDTO.setPublishers(publishers);
+        bookDTO.setSubtitle("shouts of nothingness");
+        bookDTO.setNumberOfPages(159);
+        bookDTO.setImage("https://covers.openlibrary.org/b/id/240726-S.jpg");
+        bookDTO.setPublishDate("1994");
+        bookDTO.setAuthors(authors);
+    }
+
+    @After
+    public void tearDown() {
+        clients.shutdownNow();
+        bookImportService.shutdown();
+    }
+
+    //region import by isbn
+    @Test
+    public void givenConcurrentMissesForSameIsbn_whenImportByIsbn_thenFetchAndPersistOnce() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        given(bookRepository.findByIsbn(isbn)).willReturn(Optional.empty());
+        given(openLibraryService.bookInfo(isbn)).willAnswer(invocation -> {
+            upstreamCalls.incrementAndGet();
+            Thread.sleep(300);
+            return bookDTO;
+        });
+        given(bookRepository.save(any(Book.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        List<Future<Book>> results = new ArrayList<>();
+        for(int i = 0; i < concurrentClients; i++) {
+            results.add(clients.submit(() -> {
+                start.await();
+                return bookImportService.importByIsbn(isbn);
+            }));
+        }
+        start.countDown();
+
+        Book first = results.get(0).get(10, TimeUnit.SECONDS);
+        for(Future<Book> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+        }
+
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+        verify(bookRepository, times(1)).save(any(Book.class));
+    }
+
+    @Test
+    public void givenIsbnInsertedByOtherInstance_whenImportByIsbn_thenReturnExistingBook() throws Exception {
+        Book existing = new Book(bookDTO);
+
+        given(bookRepository.findByIsbn(isbn)).willReturn(Optional.empty(), Optional.of(existing));
+        given(openLibraryService.bookInfo(isbn)).willReturn(bookDTO);
+        given(bookRepository.save(any(Book.class))).willThrow(new DataIntegrityViolationException("uk_book_isbn"));
+
+        assertThat(bookImportService.importByIsbn(isbn)).isSameAs(existing);
+    }
+    //endregion
+
+    //region import by isbn async
+    @Test
+    public void givenAsyncLookupInFlight_whenImportByIsbn_thenShareItsResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        given(bookRepository.findByIsbn(isbn)).willReturn(Optional.empty());
+        given(openLibraryService.bookInfo(isbn)).willAnswer(invocation -> {
+            release.await();
+            return bookDTO;
+        });
+        given(bookRepository.save(any(Book.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        CompletableFuture<Book> async = bookImportService.importByIsbnAsync(isbn);
+        Future<Book> sync = clients.submit(() -> bookImportService.importByIsbn(isbn));
+        release.countDown();
+
+        assertThat(sync.get(10, TimeUnit.SECONDS)).isSameAs(async.get(10, TimeUnit.SECONDS));
+        verify(openLibraryService, times(1)).bookInfo(isbn);
+    }
+
+    @Test
+    public void givenFullLookupQueue_whenImportByIsbnAsync_thenRejectImmediately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        given(bookRepository.findByIsbn(any(String.class))).willReturn(Optional.empty());
+        given(openLibraryService.bookInfo(any(String.class))).willAnswer(invocation -> {
+            release.await();
+            return bookDTO;
+        });
+        given(bookRepository.save(any(Book.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        CompletableFuture<Book> running = bookImportService.importByIsbnAsync("0000000001");
+        CompletableFuture<Book> queued = bookImportService.importByIsbnAsync("0000000002");
+
+        try {
+            bookImportService.importByIsbnAsync("0000000003");
+            throw new AssertionError("Expected BookLookupRejectedException");
+        } catch (BookLookupRejectedException ex) {
+            release.countDown();
+        }
+
+        assertThat(running.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isNotNull();
+        verify(openLibraryService, times(2)).bookInfo(any(String.class));
+    }
+    //endregion
+
+    //region import all
+    @Test
+    public void givenExistingNewAndUnknownIsbns_whenImportAll_thenReportEachOnce() throws Exception {
+        Book existing = new Book(bookDTO);
+        existing.setIsbn("0747532699");
+        String unknownIsbn = "0000000000";
+
+        given(bookRepository.findByIsbnIn(anyCollection())).willReturn(Collections.singletonList(existing));
+        given(openLibraryService.bookInfos(anyCollection())).willAnswer(invocation -> {
+            Collection<String> isbns = invocation.getArgument(0);
+            Map<String, BookDTO> found = new HashMap<>();
+            if(isbns.contains(isbn)) {
+                found.put(isbn, bookDTO);
+            }
+            return found;
+        });
+        given(bookRepository.saveAll(anyIterable())).willAnswer(invocation -> invocation.getArgument(0));
+
+        List<IsbnImportResult> results = new ArrayList<>();
+        bookImportService.importAll(Arrays.asList(existing.getIsbn(), isbn, unknownIsbn, isbn), results::add);
+
+        assertThat(results).hasSize(3);
+        assertThat(results).filteredOn(result -> result.getStatus() == Status.EXISTING)
+            .extracting(IsbnImportResult::getIsbn).containsExactly(existing.getIsbn());
+        assertThat(results).filteredOn(result -> result.getStatus() == Status.CREATED)
+            .extracting(IsbnImportResult::getIsbn).containsExactly(isbn);
+        assertThat(results).filteredOn(result -> result.getStatus() == Status.NOT_FOUND)
+            .extracting(IsbnImportResult::getIsbn).containsExactly(unknownIsbn);
+        verify(openLibraryService, times(2)).bookInfos(anyCollection());
+    }
+
+    @Test(expected = TooManyIsbnsException.class)
+    public void givenTooManyIsbns_whenImportAll_thenThrowTooManyIsbns() throws Exception {
+        bookImportService.importAll(Arrays.asList("1", "2", "3", "4"), result -> { });
+    }
+    //endregion
+
+}
@@ -0,0 +1,222 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.MutableClock;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.models.BookDTO;
+import wolox.training.models.CachedBookInfo;
+import wolox.training.repositories.CachedBookInfoRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BookInfoCacheTest {
+
+    @Mock
+    private CachedBookInfoRepository cachedBookInfoRepository;
+
+    @InjectMocks
+    private BookInfoCache bookInfoCache;
+
+    private ObjectMapper objectMapper;
+    private MeterRegistry meterRegistry;
+    private MutableClock clock;
+    private BookDTO bookDTO;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(Instant.parse("2019-05-01T10:00:00Z"));
+
+        ReflectionTestUtils.setField(bookInfoCache, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(bookInfoCache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(bookInfoCache, "maxSize", 2L);
+        ReflectionTestUtils.setField(bookInfoCache, "ttlMinutes", 1440L);
+        ReflectionTestUtils.setField(bookInfoCache, "negativeTtlMinutes", 60L);
+        ReflectionTestUtils.setField(bookInfoCache, "clock", clock);
+
+        bookDTO = new BookDTO();
+        bookDTO.setISBN("0385472579");
+        bookDTO.setTitle("Zen speaks");
+    }
+
+    //region in-memory tier tests
+    @Test
+    public void givenCachedBook_whenGet_thenReturnItAndCountHit() throws BookNotFoundException {
+        bookInfoCache.init();
+        bookInfoCache.put("0385472579", bookDTO);
+
+        assertThat(bookInfoCache.get("0385472579")).isSameAs(bookDTO);
+        assertThat(bookInfoCache.get("0000000000")).isNull();
+        assertThat(cacheGets("openlibrary.books", "hit")).isEqualTo(1);
+        assertThat(cacheGets("openlibrary.books", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    public void givenFullCache_whenPut_thenEvictLeastRecentlyUsed() throws BookNotFoundException {
+        bookInfoCache.init();
+        bookInfoCache.put("first", bookDTO);
+        bookInfoCache.put("second", bookDTO);
+        bookInfoCache.get("first");
+
+        bookInfoCache.put("third", bookDTO);
+
+        assertThat(bookInfoCache.get("first")).isSameAs(bookDTO);
+        assertThat(bookInfoCache.get("second")).isNull();
+        assertThat(bookInfoCache.get("third")).isSameAs(bookDTO);
+    }
+
+    @Test
+    public void givenTtlElapsed_whenGet_thenReturnNull() throws BookNotFoundException {
+        bookInfoCache.init();
+        bookInfoCache.put("0385472579", bookDTO);
+
+        clock.advance(Duration.ofMinutes(1439));
+        assertThat(bookInfoCache.get("0385472579")).isSameAs(bookDTO);
+
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(bookInfoCache.get("0385472579")).isNull();
+    }
+
+    @Test(expected = BookNotFoundException.class)
+    public void givenIsbnCachedAsNotFound_whenGet_thenThrowBookNotFound() throws BookNotFoundException {
+        bookInfoCache.init();
+        bookInfoCache.putNotFound("0385472579");
+
+        bookInfoCache.get("0385472579");
+    }
+
+    @Test
+    public void givenNegativeTtlElapsed_whenGet_thenReturnNull() throws BookNotFoundException {
+        bookInfoCache.init();
+        bookInfoCache.putNotFound("0385472579");
+
+        clock.advance(Duration.ofMinutes(60));
+
+        assertThat(bookInfoCache.get("0385472579")).isNull();
+    }
+
+    @Test
+    public void givenPersistentTierDisabled_whenPutAndGet_thenNeverTouchTheTable() throws BookNotFoundException {
+        bookInfoCache.init();
+        bookInfoCache.put("0385472579", bookDTO);
+        bookInfoCache.putNotFound("0000000000");
+        bookInfoCache.get("1111111111");
+
+        verify(cachedBookInfoRepository, never()).save(any());
+        verify(cachedBookInfoRepository, never()).findById(any());
+    }
+    //endregion
+
+    //region persistent tier tests
+    @Test
+    public void givenPersistentTier_whenPut_thenStoreWithFetchTime() {
+        enablePersistentTier();
+
+        bookInfoCache.put("0385472579", bookDTO);
+        bookInfoCache.putNotFound("0000000000");
+
+        ArgumentCaptor<CachedBookInfo> saved = ArgumentCaptor.forClass(CachedBookInfo.class);
+        verify(cachedBookInfoRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues().get(0).getIsbn()).isEqualTo("0385472579");
+        assertThat(saved.getAllValues().get(0).getFound()).isTrue();
+        assertThat(saved.getAllValues().get(0).getFetchedAt()).isEqualTo(clock.instant());
+        assertThat(saved.getAllValues().get(1).getIsbn()).isEqualTo("0000000000");
+        assertThat(saved.getAllValues().get(1).getFound()).isFalse();
+        assertThat(saved.getAllValues().get(1).getPayload()).isNull();
+    }
+
+    @Test
+    public void givenFreshPersistentEntry_whenGet_thenReturnItAndKeepItInMemory() throws Exception {
+        enablePersistentTier();
+        given(cachedBookInfoRepository.findById("0385472579")).willReturn(Optional.of(
+            new CachedBookInfo("0385472579", objectMapper.writeValueAsString(bookDTO), true, clock.instant())));
+        clock.advance(Duration.ofMinutes(1439));
+
+        assertThat(bookInfoCache.get("0385472579").getTitle()).isEqualTo(bookDTO.getTitle());
+        assertThat(bookInfoCache.get("0385472579").getTitle()).isEqualTo(bookDTO.getTitle());
+
+        verify(cachedBookInfoRepository, times(1)).findById("0385472579");
+        assertThat(persistentCount("hit")).isEqualTo(1);
+        assertThat(persistentCount("miss")).isEqualTo(0);
+    }
+
+    @Test
+    public void givenExpiredPersistentEntry_whenGet_thenCountMiss() throws Exception {
+        enablePersistentTier();
+        given(cachedBookInfoRepository.findById("0385472579")).willReturn(Optional.of(
+            new CachedBookInfo("0385472579", objectMapper.writeValueAsString(bookDTO), true, clock.instant())));
+        clock.advance(Duration.ofMinutes(1441));
+
+        assertThat(bookInfoCache.get("0385472579")).isNull();
+        assertThat(persistentCount("hit")).isEqualTo(0);
+        assertThat(persistentCount("miss")).isEqualTo(1);
+    }
+
+    @Test
+    public void givenNoPersistentEntry_whenGet_thenCountMiss() throws BookNotFoundException {
+        enablePersistentTier();
+        given(cachedBookInfoRepository.findById("0385472579")).willReturn(Optional.empty());
+
+        assertThat(bookInfoCache.get("0385472579")).isNull();
+        assertThat(persistentCount("miss")).isEqualTo(1);
+    }
+
+    @Test
+    public void givenPersistentNotFoundEntry_whenGet_thenThrowAndRememberInMemory() {
+        enablePersistentTier();
+        given(cachedBookInfoRepository.findById("0385472579")).willReturn(Optional.of(
+            new CachedBookInfo("0385472579", null, false, clock.instant())));
+
+        assertThat(isCachedAsNotFound("0385472579")).isTrue();
+        assertThat(isCachedAsNotFound("0385472579")).isTrue();
+
+        verify(cachedBookInfoRepository, times(1)).findById("0385472579");
+        assertThat(persistentCount("hit")).isEqualTo(1);
+    }
+    //endregion
+
+    //region private methods
+    private void enablePersistentTier() {
+        ReflectionTestUtils.setField(bookInfoCache, "persistentEnabled", true);
+        bookInfoCache.init();
+    }
+
+    private boolean isCachedAsNotFound(String isbn) {
+        try {
+            bookInfoCache.get(isbn);
+            return false;
+        } catch (BookNotFoundException ex) {
+            return true;
+        }
+    }
+
+    private double cacheGets(String cache, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+    }
+
+    private double persistentCount(String result) {
+        return meterRegistry.get("openlibrary.books.persistent").tag("result", result).counter().count();
+    }
+    //endregion
+
+}
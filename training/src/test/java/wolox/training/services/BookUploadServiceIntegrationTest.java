@@ -0,0 +1,148 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import wolox.training.models.Book;
+import wolox.training.models.BulkItemResult;
+import wolox.training.models.BulkItemResult.Status;
+import wolox.training.models.UploadProgress;
+import wolox.training.repositories.BookRepository;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@Import(BookUploadService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = {"upload.batch-size=2", "upload.csv.max-field-length=64"})
+public class BookUploadServiceIntegrationTest {
+
+    private static final String HEADER = "isbn,title,subtitle,author,publisher,year,pages,genre,image\r\n";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookUploadService bookUploadService;
+
+    @MockBean
+    private BookSearchEngine bookSearchEngine;
+
+    private List<BulkItemResult> rejected;
+    private List<UploadProgress> progress;
+
+    @Before
+    public void setUp() {
+        entityManager.persist(new Book("J. K. Rowling", "image.png", "Harry Potter and the Philosopher's Stone",
+            "-", "Bloomsbury Publishing", "1997", 223, "9780747532743", "Fantasy"));
+        entityManager.flush();
+        entityManager.clear();
+
+        rejected = new ArrayList<>();
+        progress = new ArrayList<>();
+    }
+
+    @Test
+    public void givenCsvUpload_whenUpload_thenInsertValidRowsAndReportTheOthers() {
+        upload(CatalogFormat.CSV, HEADER
+            + "9780802130303,\"Ficciones, \"\"the\"\" collection\",-,Jorge Luis Borges,Editorial Sur,1944,203,,image.png\r\n"
+            + "9780000000001,Untitled,-,Anonymous,Nobody,unknown,10,,image.png\r\n"
+            + "9780747532743,Harry Potter,-,J. K. Rowling,Bloomsbury Publishing,1997,223,Fantasy,image.png\r\n"
+            + "9780141439518,Pride and Prejudice,-,Jane Austen,T. Egerton,1813,432,Romance,image.png\r\n"
+            + "9780802130303,Ficciones,-,Jorge Luis Borges,Editorial Sur,1944,203,,image.png\r\n");
+
+        assertThat(rejected.stream().map(BulkItemResult::getIndex).collect(Collectors.toList())).containsExactly(1, 2, 4);
+        assertThat(rejected.stream().map(BulkItemResult::getStatus).collect(Collectors.toList()))
+            .containsExactly(Status.INVALID, Status.EXISTING, Status.EXISTING);
+        assertThat(progress).hasSize(3);
+        assertFinalProgress(5, 2, 3, null);
+
+        Book uploaded = bookRepository.findByIsbn("9780802130303").get();
+        assertThat(uploaded.getId()).isNotNull();
+        assertThat(uploaded.getTitle()).isEqualTo("Ficciones, \"the\" collection");
+        assertThat(uploaded.getGenre()).isNull();
+        assertThat(bookRepository.findByIsbn("9780141439518")).isPresent();
+        assertThat(bookRepository.findByIsbn("9780000000001")).isNotPresent();
+        verify(bookSearchEngine, times(2)).index(any());
+    }
+
+    @Test
+    public void givenCsvWithoutRequiredColumns_whenUpload_thenStopWithError() {
+        upload(CatalogFormat.CSV, "isbn,title\r\n9780802130303,Ficciones\r\n");
+
+        assertThat(rejected).isEmpty();
+        assertFinalProgress(0, 0, 0, "Missing columns: subtitle, author, publisher, year, pages, image");
+    }
+
+    @Test
+    public void givenCsvWithOversizedField_whenUpload_thenRejectThatRowAndStop() {
+        upload(CatalogFormat.CSV, HEADER
+            + "9780141439518,Pride and Prejudice,-,Jane Austen,T. Egerton,1813,432,Romance,image.png\r\n"
+            + "9780802130303,\"" + String.join("", Collections.nCopies(100, "Ficciones ")) + "\r\n"
+            + "9780000000001,Untitled,-,Anonymous,Nobody,1990,10,,image.png\r\n");
+
+        assertThat(rejected.stream().map(BulkItemResult::getIndex).collect(Collectors.toList())).containsExactly(1);
+        assertThat(rejected.get(0).getStatus()).isEqualTo(Status.INVALID);
+        assertThat(progress.get(progress.size() - 1).getError()).isEqualTo("Field longer than 64 characters");
+        assertThat(bookRepository.findByIsbn("9780141439518")).isPresent();
+        assertThat(bookRepository.findByIsbn("9780000000001")).isNotPresent();
+    }
+
+    @Test
+    public void givenNdjsonUpload_whenUpload_thenReportIncompleteRowsAndStopAtMalformedOne() {
+        upload(CatalogFormat.NDJSON,
+            "{\"author\":\"Jane Austen\",\"image\":\"image.png\",\"title\":\"Pride and Prejudice\",\"subtitle\":\"-\","
+                + "\"publisher\":\"T. Egerton\",\"year\":\"1813\",\"pages\":432,\"isbn\":\"9780141439518\"}\n"
+                + "{\"author\":\"Anonymous\",\"image\":\"image.png\",\"title\":\"Untitled\",\"publisher\":\"Nobody\","
+                + "\"year\":\"1990\",\"pages\":10,\"isbn\":\"9780000000001\"}\n"
+                + "{\"author\":\n");
+
+        assertThat(rejected.stream().map(BulkItemResult::getIndex).collect(Collectors.toList())).containsExactly(1, 2);
+        assertThat(rejected).allMatch(result -> result.getStatus() == Status.INVALID);
+        assertThat(progress.get(progress.size() - 1).getError()).isNotNull();
+        assertThat(bookRepository.findByIsbn("9780141439518")).isPresent();
+    }
+
+    //region private methods
+    private void upload(CatalogFormat format, String body) {
+        bookUploadService.upload(format, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+            rejected::add, progress::add);
+    }
+
+    private void assertFinalProgress(int rows, int created, int rejectedRows, String error) {
+        UploadProgress last = progress.get(progress.size() - 1);
+
+        assertThat(last.isDone()).isTrue();
+        assertThat(last.getRows()).isEqualTo(rows);
+        assertThat(last.getCreated()).isEqualTo(created);
+        assertThat(last.getRejected()).isEqualTo(rejectedRows);
+        assertThat(last.getError()).isEqualTo(error);
+    }
+    //endregion
+
+}
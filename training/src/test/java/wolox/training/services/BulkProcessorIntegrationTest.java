@@ -0,0 +1,79 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import wolox.training.models.Book;
+import wolox.training.models.BulkItemResult;
+import wolox.training.models.BulkItemResult.Status;
+import wolox.training.repositories.BookRepository;
+import wolox.training.repositories.CapturingStatementInspector;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@Import(BulkProcessor.class)
+@TestPropertySource(properties =
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector=wolox.training.repositories.CapturingStatementInspector")
+public class BulkProcessorIntegrationTest {
+
+    private static final int BOOKS = 120;
+
+    @Autowired
+    private BulkProcessor bulkProcessor;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private String body;
+
+    @Before
+    public void setUp() throws IOException {
+        List<Book> books = new ArrayList<>();
+
+        for(int i = 0; i < BOOKS; i++) {
+            books.add(new Book("Author " + i, "image.png", "Title " + i, "-", "Publisher", "2000", 100,
+                String.format("97800000%05d", i), "Fiction"));
+        }
+
+        body = new ObjectMapper().writeValueAsString(books);
+        CapturingStatementInspector.clear();
+    }
+
+    @Test
+    public void givenManyBooks_whenCreateThemInBulk_thenInsertInJdbcBatchesWithPooledIds() throws IOException {
+        List<BulkItemResult> results = bulkProcessor.process(new ObjectMapper().readerFor(Book.class).readValues(body),
+            books -> books.stream()
+                .map(book -> BulkItemResult.of(Status.CREATED, bookRepository.save(book).getId()))
+                .collect(Collectors.toList()));
+
+        assertThat(results).hasSize(BOOKS).extracting(BulkItemResult::getId).doesNotContainNull().doesNotHaveDuplicates();
+        // the insert is prepared once and reused across batches of 50, ids come in blocks of 50
+        assertThat(statementsContaining("insert into book").size()).isBetween(1, 3);
+        assertThat(statementsContaining("book_seq")).hasSize(3);
+        assertThat(bookRepository.count()).isEqualTo(BOOKS);
+    }
+
+    //region private methods
+    private List<String> statementsContaining(String fragment) {
+        return CapturingStatementInspector.statements().stream()
+            .filter(sql -> sql.toLowerCase().contains(fragment))
+            .collect(Collectors.toList());
+    }
+    //endregion
+
+}
@@ -0,0 +1,143 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.Invocation;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import wolox.training.models.BulkItemResult;
+import wolox.training.models.BulkItemResult.Status;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BulkProcessorTest {
+
+    private static final int FAILING_ITEM = 13;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BulkProcessor bulkProcessor;
+
+    private ObjectReader reader;
+
+    private List<List<Integer>> chunks;
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(bulkProcessor, "chunkSize", 2);
+        bulkProcessor.init();
+
+        given(transactionManager.getTransaction(any())).willReturn(new SimpleTransactionStatus());
+
+        reader = new ObjectMapper().readerFor(Integer.class);
+        chunks = new ArrayList<>();
+    }
+
+    @Test
+    public void givenFiveItemsAndChunksOfTwo_whenProcess_thenApplyThreeChunks() throws IOException {
+        List<BulkItemResult> results = bulkProcessor.process(reader.readValues("[1, 2, 3, 4, 5]"), this::handle);
+
+        assertThat(chunks).containsExactly(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5));
+        assertThat(ids(results)).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(results).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        verify(entityManager, times(3)).flush();
+        verify(entityManager, times(3)).clear();
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    public void givenNewlineDelimitedItems_whenProcess_thenReadEveryLine() throws IOException {
+        List<BulkItemResult> results = bulkProcessor.process(reader.readValues("1\n2\n3\n"), this::handle);
+
+        assertThat(ids(results)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    public void givenUnreadableItem_whenProcess_thenReportItInvalidAndGoOn() throws IOException {
+        List<BulkItemResult> results = bulkProcessor.process(reader.readValues("[1, \"one\", 3]"), this::handle);
+
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(Status.CREATED, Status.INVALID, Status.CREATED);
+        assertThat(results).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    public void givenMalformedInput_whenProcess_thenStopReadingThere() throws IOException {
+        List<BulkItemResult> results = bulkProcessor.process(reader.readValues("[1, 2, oops, 4]"), this::handle);
+
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(Status.CREATED, Status.CREATED, Status.INVALID);
+    }
+
+    @Test
+    public void givenItemFailingToPersist_whenProcess_thenFailOnlyThatItem() throws IOException {
+        List<BulkItemResult> results = bulkProcessor.process(reader.readValues("[1, " + FAILING_ITEM + ", 3]"), this::handle);
+
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(Status.CREATED, Status.FAILED, Status.CREATED);
+        assertThat(results).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(chunks).containsExactly(Arrays.asList(1, FAILING_ITEM), Arrays.asList(1), Arrays.asList(FAILING_ITEM), Arrays.asList(3));
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    public void givenPrepareStep_whenProcess_thenRunItOutsideTheTransactionOncePerChunk() throws IOException {
+        List<Long> openWhilePreparing = new ArrayList<>();
+
+        List<BulkItemResult> results = bulkProcessor.process(reader.readValues("[1, " + FAILING_ITEM + ", 3]"), items -> {
+            openWhilePreparing.add(openTransactions());
+            return items;
+        }, this::handle);
+
+        assertThat(openWhilePreparing).containsExactly(0L, 0L);
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(Status.CREATED, Status.FAILED, Status.CREATED);
+        assertThat(chunks).containsExactly(Arrays.asList(1, FAILING_ITEM), Arrays.asList(1), Arrays.asList(FAILING_ITEM), Arrays.asList(3));
+    }
+
+    //region private methods
+    private long openTransactions() {
+        Collection<Invocation> invocations = mockingDetails(transactionManager).getInvocations();
+        long begun = invocations.stream().filter(invocation -> invocation.getMethod().getName().equals("getTransaction")).count();
+
+        return begun - (invocations.size() - begun);
+    }
+
+    private List<BulkItemResult> handle(List<Integer> items) {
+        chunks.add(new ArrayList<>(items));
+
+        if(items.contains(FAILING_ITEM)) {
+            throw new PersistenceException("could not execute batch");
+        }
+
+        return items.stream().map(item -> BulkItemResult.of(Status.CREATED, item.longValue())).collect(Collectors.toList());
+    }
+
+    private List<Long> ids(List<BulkItemResult> results) {
+        return results.stream().map(BulkItemResult::getId).collect(Collectors.toList());
+    }
+    //endregion
+
+}
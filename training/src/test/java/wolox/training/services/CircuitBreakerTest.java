@@ -0,0 +1,107 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Test;
+import wolox.training.MutableClock;
+
+public class CircuitBreakerTest {
+
+    private MutableClock clock;
+
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2019-05-01T10:00:00Z"));
+        circuitBreaker = new CircuitBreaker(3, 1000, clock);
+    }
+
+    @Test
+    public void givenFailuresBelowThreshold_whenAllowRequest_thenStayClosed() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.isOpen()).isFalse();
+    }
+
+    @Test
+    public void givenThresholdReached_whenAllowRequest_thenRejectUntilOpenTimePasses() {
+        open();
+
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+
+        clock.advance(Duration.ofMillis(999));
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+
+        clock.advance(Duration.ofMillis(1));
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    public void givenTrialInProgress_whenAllowRequest_thenRejectOtherCalls() {
+        open();
+        clock.advance(Duration.ofMillis(1000));
+
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+        assertThat(circuitBreaker.isOpen()).isTrue();
+    }
+
+    @Test
+    public void givenSuccessfulTrial_whenAllowRequest_thenClose() {
+        open();
+        clock.advance(Duration.ofMillis(1000));
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.recordSuccess();
+
+        assertThat(circuitBreaker.isOpen()).isFalse();
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    public void givenFailedTrial_whenAllowRequest_thenOpenAgain() {
+        open();
+        clock.advance(Duration.ofMillis(1000));
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.recordFailure();
+
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+
+        clock.advance(Duration.ofMillis(1000));
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    public void givenTrialWithoutOutcome_whenOpenTimePasses_thenAllowNewTrial() {
+        open();
+        clock.advance(Duration.ofMillis(1000));
+        circuitBreaker.allowRequest();
+
+        clock.advance(Duration.ofMillis(999));
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+
+        clock.advance(Duration.ofMillis(1));
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+    }
+
+    //region private methods
+    private void open() {
+        for(int i = 0; i < 3; i++) {
+            circuitBreaker.recordFailure();
+        }
+    }
+    //endregion
+
+}
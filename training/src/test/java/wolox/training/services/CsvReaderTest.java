@@ -0,0 +1,89 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class CsvReaderTest {
+
+    @Test
+    public void givenPlainRecords_whenReadRecord_thenSplitOnCommasAndLineBreaks() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b,c\r\nd,,f\ng,h,i"));
+
+        assertThat(reader.readRecord()).containsExactly("a", "b", "c");
+        assertThat(reader.readRecord()).containsExactly("d", "", "f");
+        assertThat(reader.readRecord()).containsExactly("g", "h", "i");
+        assertThat(reader.readRecord()).isNull();
+    }
+
+    @Test
+    public void givenQuotedFields_whenReadRecord_thenKeepCommasQuotesAndLineBreaks() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("\"a, b\",\"say \"\"hi\"\"\",\"two\r\nlines\"\r\n"));
+
+        assertThat(reader.readRecord()).containsExactly("a, b", "say \"hi\"", "two\r\nlines");
+        assertThat(reader.readRecord()).isNull();
+    }
+
+    @Test(expected = IOException.class)
+    public void givenUnterminatedQuote_whenReadRecord_thenThrowIOException() throws IOException {
+        new CsvReader(new StringReader("a,\"b\r\n")).readRecord();
+    }
+
+    @Test
+    public void givenFieldsAndRecordAtTheLimits_whenReadRecord_thenReadThem() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("abcd,\"ef\"\"g\"\n"), 4, 13);
+
+        assertThat(reader.readRecord()).containsExactly("abcd", "ef\"g");
+    }
+
+    @Test(expected = IOException.class)
+    public void givenFieldOverTheLimit_whenReadRecord_thenThrowIOException() throws IOException {
+        new CsvReader(new StringReader("a,abcde,b\n"), 4, 100).readRecord();
+    }
+
+    @Test(expected = IOException.class)
+    public void givenEndlessQuotedField_whenReadRecord_thenThrowOnceOverTheLimit() throws IOException {
+        new CsvReader(endlessQuotedField(), 100, 1000).readRecord();
+    }
+
+    @Test(expected = IOException.class)
+    public void givenRecordOverTheLimit_whenReadRecord_thenThrowIOException() throws IOException {
+        new CsvReader(new StringReader("abc,abc,abc,abc\n"), 4, 12).readRecord();
+    }
+
+    //region private methods
+    /**
+     * An opening quote followed by commas and line breaks that never end, as a broken or hostile upload would send.
+     */
+    private static Reader endlessQuotedField() {
+        return new Reader() {
+
+            private boolean opened;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                int start = offset;
+
+                if(!opened) {
+                    buffer[offset] = '"';
+                    opened = true;
+                    start++;
+                }
+
+                Arrays.fill(buffer, start, offset + length, ',');
+                return length;
+            }
+
+            @Override
+            public void close() {
+            }
+
+        };
+    }
+    //endregion
+
+}
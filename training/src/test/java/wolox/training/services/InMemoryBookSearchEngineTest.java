@@ -0,0 +1,95 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.models.Book;
+import wolox.training.repositories.BookRepository;
+
+public class InMemoryBookSearchEngineTest {
+
+    private InMemoryBookSearchEngine searchEngine;
+
+    private Book philosophersStone;
+    private Book chamberOfSecrets;
+    private Book aleph;
+
+    @Before
+    public void setUp() throws Exception {
+        philosophersStone = book(1L, "J. K. Rowling", "Harry Potter and the Philosopher's Stone", "-", "Bloomsbury Publishing");
+        chamberOfSecrets = book(2L, "J. K. Rowling", "Harry Potter and the Chamber of Secrets", "-", "Bloomsbury Publishing");
+        aleph = book(3L, "Jorge Luis Borges", "The Aleph", "and other stories", "Editorial Losada");
+
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findAll()).thenReturn(Arrays.asList(philosophersStone, chamberOfSecrets, aleph));
+
+        searchEngine = new InMemoryBookSearchEngine();
+        ReflectionTestUtils.setField(searchEngine, "bookRepository", bookRepository);
+        searchEngine.init();
+    }
+
+    @Test
+    public void givenWordPrefixes_whenSearch_thenMatchByPrefix() {
+        assertThat(searchEngine.search("harr pott", 10)).containsExactlyInAnyOrder(philosophersStone, chamberOfSecrets);
+    }
+
+    @Test
+    public void givenSeveralTerms_whenSearch_thenRequireEveryTerm() {
+        assertThat(searchEngine.search("potter chamber", 10)).containsExactly(chamberOfSecrets);
+    }
+
+    @Test
+    public void givenMisspelledWord_whenSearch_thenTolerateTypos() {
+        assertThat(searchEngine.search("Philosofer", 10)).containsExactly(philosophersStone);
+        assertThat(searchEngine.search("borjes", 10)).containsExactly(aleph);
+    }
+
+    @Test
+    public void givenShortMisspelledWord_whenSearch_thenDoNotMatch() {
+        assertThat(searchEngine.search("alp", 10)).isEmpty();
+    }
+
+    @Test
+    public void givenWordInTitleAndInPublisher_whenSearch_thenRankTitleFirst() throws Exception {
+        Book published = book(4L, "Someone", "Essays", "-", "Aleph Press");
+
+        searchEngine.index(published);
+
+        assertThat(searchEngine.search("aleph", 10)).containsExactly(aleph, published);
+    }
+
+    @Test
+    public void givenUpdatedBook_whenIndex_thenSearchNewWordsOnly() throws Exception {
+        Book renamed = book(3L, "Jorge Luis Borges", "Ficciones", "-", "Editorial Sur");
+
+        searchEngine.index(renamed);
+
+        assertThat(searchEngine.search("aleph", 10)).isEmpty();
+        assertThat(searchEngine.search("ficciones", 10)).containsExactly(renamed);
+    }
+
+    @Test
+    public void givenRemovedBook_whenSearch_thenDoNotReturnIt() {
+        searchEngine.remove(chamberOfSecrets.getId());
+
+        assertThat(searchEngine.search("harry", 10)).containsExactly(philosophersStone);
+    }
+
+    @Test
+    public void givenLimit_whenSearch_thenReturnAtMostLimit() {
+        assertThat(searchEngine.search("rowling", 1)).hasSize(1);
+    }
+
+    private Book book(Long id, String author, String title, String subtitle, String publisher) {
+        Book book = new Book(author, "image.png", title, subtitle, publisher, "1997", 223, "isbn-" + id, "Fantasy");
+        ReflectionTestUtils.setField(book, "id", id);
+
+        return book;
+    }
+
+}
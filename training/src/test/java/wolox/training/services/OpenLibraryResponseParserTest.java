@@ -0,0 +1,79 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import wolox.training.models.BookDTO;
+
+public class OpenLibraryResponseParserTest {
+
+    private OpenLibraryResponseParser parser;
+
+    @Before
+    public void setUp() {
+        parser = new OpenLibraryResponseParser(new JsonFactory());
+    }
+
+    @Test
+    public void givenFullResponse_whenParse_thenReadOnlyBookAttributes() throws Exception {
+        Map<String, BookDTO> bookDTOs = parse("{\"ISBN:0385472579\": {"
+            + "\"url\": \"https://openlibrary.org/books/OL1397864M/Zen_speaks\", "
+            + "\"identifiers\": {\"isbn_10\": [\"0385472579\"], \"lccn\": [\"93005405\"]}, "
+            + "\"title\": \"Zen speaks\", \"subtitle\": \"shouts of nothingness\", "
+            + "\"authors\": [{\"url\": \"https://openlibrary.org/authors/OL223368A/Zhizhong_Cai\", \"name\": \"Zhizhong Cai\"}, {\"name\": \"Brian Bruya\"}], "
+            + "\"subjects\": [{\"name\": \"Zen Buddhism\", \"url\": \"https://openlibrary.org/subjects/zen_buddhism\"}], "
+            + "\"publishers\": [{\"name\": \"Anchor Books\"}], \"number_of_pages\": 159, \"publish_date\": \"1994\", "
+            + "\"cover\": {\"small\": \"https://covers.openlibrary.org/b/id/240726-S.jpg\", \"large\": \"https://covers.openlibrary.org/b/id/240726-L.jpg\"}}}");
+
+        BookDTO bookDTO = bookDTOs.get("0385472579");
+
+        assertThat(bookDTOs).containsOnlyKeys("0385472579");
+        assertThat(bookDTO.getISBN()).isEqualTo("0385472579");
+        assertThat(bookDTO.getTitle()).isEqualTo("Zen speaks");
+        assertThat(bookDTO.getSubtitle()).isEqualTo("shouts of nothingness");
+        assertThat(bookDTO.getAuthors()).containsExactly("Zhizhong Cai", "Brian Bruya");
+        assertThat(bookDTO.getPublishers()).containsExactly("Anchor Books");
+        assertThat(bookDTO.getNumberOfPages()).isEqualTo(159);
+        assertThat(bookDTO.getPublishDate()).isEqualTo("1994");
+        assertThat(bookDTO.getImage()).isEqualTo("https://covers.openlibrary.org/b/id/240726-S.jpg");
+    }
+
+    @Test
+    public void givenSeveralBooks_whenParse_thenKeepResponseOrder() throws Exception {
+        Map<String, BookDTO> bookDTOs = parse("{\"ISBN:0747532699\": {\"title\": \"Harry Potter\"}, "
+            + "\"ISBN:0385472579\": {\"title\": \"Zen speaks\"}}");
+
+        assertThat(bookDTOs.keySet()).containsExactly("0747532699", "0385472579");
+    }
+
+    @Test
+    public void givenMissingOrMistypedAttributes_whenParse_thenLeaveThemNull() throws Exception {
+        Map<String, BookDTO> bookDTOs = parse("{\"ISBN:0385472579\": {\"title\": \"Zen speaks\", \"subtitle\": null, "
+            + "\"number_of_pages\": \"159\", \"authors\": {\"name\": \"Zhizhong Cai\"}, \"cover\": []}}");
+
+        BookDTO bookDTO = bookDTOs.get("0385472579");
+
+        assertThat(bookDTO.getTitle()).isEqualTo("Zen speaks");
+        assertThat(bookDTO.getSubtitle()).isNull();
+        assertThat(bookDTO.getNumberOfPages()).isNull();
+        assertThat(bookDTO.getAuthors()).isNull();
+        assertThat(bookDTO.getPublishers()).isNull();
+        assertThat(bookDTO.getImage()).isNull();
+    }
+
+    @Test
+    public void givenEmptyResponse_whenParse_thenReturnNoBooks() throws Exception {
+        assertThat(parse("{}")).isEmpty();
+    }
+
+    private Map<String, BookDTO> parse(String body) throws IOException {
+        return parser.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
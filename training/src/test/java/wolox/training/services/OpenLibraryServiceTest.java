@@ -0,0 +1,241 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.MutableClock;
+import wolox.training.exceptions.BookNotFoundException;
+import wolox.training.exceptions.ConnectionFailedException;
+import wolox.training.exceptions.OpenLibraryUnavailableException;
+import wolox.training.models.BookDTO;
+
+public class OpenLibraryServiceTest {
+
+    private static final String ISBN = "0385472579";
+
+    private static final String BOOK_RESPONSE = "{\"ISBN:0385472579\": {"
+        + "\"title\": \"Zen speaks\", \"subtitle\": \"shouts of nothingness\", "
+        + "\"publishers\": [{\"name\": \"Anchor Books\"}], \"number_of_pages\": 159, "
+        + "\"publish_date\": \"1994\", \"authors\": [{\"url\": \"https://openlibrary.org/authors/OL223368A/Zhizhong_Cai\", \"name\": \"Zhizhong Cai\"}], "
+        + "\"cover\": {\"small\": \"https://covers.openlibrary.org/b/id/240726-S.jpg\"}}}";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private BookInfoCache bookInfoCache;
+    private OpenLibraryService openLibraryService;
+    private MutableClock clock;
+
+    @Before
+    public void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        bookInfoCache = mock(BookInfoCache.class);
+        clock = new MutableClock(Instant.parse("2019-05-01T10:00:00Z"));
+
+        openLibraryService = new OpenLibraryService();
+        ReflectionTestUtils.setField(openLibraryService, "bookInfoCache", bookInfoCache);
+        ReflectionTestUtils.setField(openLibraryService, "baseUrl", "http://localhost:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(openLibraryService, "connectTimeoutMs", 1000);
+        ReflectionTestUtils.setField(openLibraryService, "readTimeoutMs", 500);
+        ReflectionTestUtils.setField(openLibraryService, "poolTimeoutMs", 1000);
+        ReflectionTestUtils.setField(openLibraryService, "maxConnections", 10);
+        ReflectionTestUtils.setField(openLibraryService, "maxConnectionsPerRoute", 5);
+        ReflectionTestUtils.setField(openLibraryService, "failureThreshold", 3);
+        ReflectionTestUtils.setField(openLibraryService, "openMillis", 60000L);
+        ReflectionTestUtils.setField(openLibraryService, "clock", clock);
+        openLibraryService.init();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        openLibraryService.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    //region book info
+    @Test
+    public void givenKnownIsbn_whenBookInfo_thenReturnBookDTO() throws Exception {
+        server.createContext("/api/books", exchange -> respond(exchange, 200, BOOK_RESPONSE));
+
+        BookDTO bookDTO = openLibraryService.bookInfo(ISBN);
+
+        assertThat(bookDTO.getISBN()).isEqualTo(ISBN);
+        assertThat(bookDTO.getTitle()).isEqualTo("Zen speaks");
+        assertThat(bookDTO.getSubtitle()).isEqualTo("shouts of nothingness");
+        assertThat(bookDTO.getPublishers()).containsExactly("Anchor Books");
+        assertThat(bookDTO.getAuthors()).containsExactly("Zhizhong Cai");
+        assertThat(bookDTO.getNumberOfPages()).isEqualTo(159);
+        assertThat(bookDTO.getImage()).isEqualTo("https://covers.openlibrary.org/b/id/240726-S.jpg");
+        verify(bookInfoCache).put(ISBN, bookDTO);
+    }
+
+    @Test
+    public void givenUnknownIsbn_whenBookInfo_thenThrowBookNotFoundAndCacheIt() throws Exception {
+        server.createContext("/api/books", exchange -> respond(exchange, 200, "{}"));
+
+        try {
+            openLibraryService.bookInfo(ISBN);
+        } catch (BookNotFoundException ex) {
+            verify(bookInfoCache).putNotFound(ISBN);
+            return;
+        }
+
+        throw new AssertionError("Expected BookNotFoundException");
+    }
+
+    @Test
+    public void givenSequentialLookups_whenBookInfo_thenReuseConnection() throws Exception {
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        server.createContext("/api/books", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange, 200, BOOK_RESPONSE);
+        });
+
+        openLibraryService.bookInfo(ISBN);
+        openLibraryService.bookInfo(ISBN);
+        openLibraryService.bookInfo(ISBN);
+
+        assertThat(clientPorts).hasSize(1);
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void givenSlowUpstream_whenBookInfo_thenTimeout() throws Exception {
+        server.createContext("/api/books", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, BOOK_RESPONSE);
+        });
+
+        openLibraryService.bookInfo(ISBN);
+    }
+
+    @Test
+    public void givenFailingUpstream_whenBookInfo_thenOpenCircuitAndStopCallingUpstream() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        server.createContext("/api/books", exchange -> {
+            upstreamCalls.incrementAndGet();
+            respond(exchange, 500, "{}");
+        });
+
+        for(int i = 0; i < 3; i++) {
+            try {
+                openLibraryService.bookInfo(ISBN);
+            } catch (ConnectionFailedException ex) {
+                assertThat(ex).isNotInstanceOf(OpenLibraryUnavailableException.class);
+            }
+        }
+
+        try {
+            openLibraryService.bookInfo(ISBN);
+        } catch (OpenLibraryUnavailableException ex) {
+            assertThat(upstreamCalls.get()).isEqualTo(3);
+            return;
+        }
+
+        throw new AssertionError("Expected OpenLibraryUnavailableException");
+    }
+
+    @Test
+    public void givenTrialFailingToParse_whenBookInfo_thenOpenCircuitAgain() throws Exception {
+        server.createContext("/api/books", exchange -> respond(exchange, 500, "{}"));
+        openCircuit();
+
+        OpenLibraryResponseParser responseParser = mock(OpenLibraryResponseParser.class);
+        given(responseParser.parse(any())).willThrow(new IllegalStateException("Unexpected token"));
+        ReflectionTestUtils.setField(openLibraryService, "responseParser", responseParser);
+        server.removeContext("/api/books");
+        server.createContext("/api/books", exchange -> respond(exchange, 200, BOOK_RESPONSE));
+        clock.advance(Duration.ofMillis(60000));
+
+        try {
+            openLibraryService.bookInfo(ISBN);
+            throw new AssertionError("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertThat(ex).hasMessage("Unexpected token");
+        }
+
+        try {
+            openLibraryService.bookInfo(ISBN);
+            throw new AssertionError("Expected OpenLibraryUnavailableException");
+        } catch (OpenLibraryUnavailableException ex) {
+            assertThat(ex).isNotNull();
+        }
+
+        ReflectionTestUtils.setField(openLibraryService, "responseParser", new OpenLibraryResponseParser(new JsonFactory()));
+        clock.advance(Duration.ofMillis(60000));
+
+        assertThat(openLibraryService.bookInfo(ISBN).getTitle()).isEqualTo("Zen speaks");
+    }
+    //endregion
+
+    //region book infos
+    @Test
+    public void givenSeveralIsbns_whenBookInfos_thenFetchThemInOneRequest() throws Exception {
+        String unknownIsbn = "0000000000";
+        Set<String> queries = ConcurrentHashMap.newKeySet();
+        server.createContext("/api/books", exchange -> {
+            queries.add(exchange.getRequestURI().getQuery());
+            respond(exchange, 200, BOOK_RESPONSE);
+        });
+
+        Map<String, BookDTO> bookDTOs = openLibraryService.bookInfos(Arrays.asList(ISBN, unknownIsbn));
+
+        assertThat(queries).hasSize(1);
+        assertThat(queries.iterator().next()).contains("bibkeys=ISBN:" + ISBN + ",ISBN:" + unknownIsbn);
+        assertThat(bookDTOs).containsOnlyKeys(ISBN);
+        verify(bookInfoCache).put(ISBN, bookDTOs.get(ISBN));
+        verify(bookInfoCache).putNotFound(unknownIsbn);
+    }
+    //endregion
+
+    private void openCircuit() throws Exception {
+        for(int i = 0; i < 3; i++) {
+            try {
+                openLibraryService.bookInfo(ISBN);
+            } catch (ConnectionFailedException ex) {
+                assertThat(ex).isNotInstanceOf(OpenLibraryUnavailableException.class);
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+}
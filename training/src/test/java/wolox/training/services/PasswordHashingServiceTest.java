@@ -0,0 +1,121 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import wolox.training.exceptions.PasswordHashingUnavailableException;
+
+public class PasswordHashingServiceTest {
+
+    private PasswordHashingService passwordHashingService;
+    private MeterRegistry meterRegistry;
+    private ExecutorService callers;
+    private CountDownLatch started;
+    private CountDownLatch release;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        callers = Executors.newFixedThreadPool(2);
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+
+        passwordHashingService = new PasswordHashingService();
+        ReflectionTestUtils.setField(passwordHashingService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(passwordHashingService, "strength", 4);
+        ReflectionTestUtils.setField(passwordHashingService, "threads", 1);
+        ReflectionTestUtils.setField(passwordHashingService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(passwordHashingService, "timeoutMs", 5000L);
+        passwordHashingService.init();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    public void givenPassword_whenHashAndMatch_thenRecordBothOperations() throws PasswordHashingUnavailableException {
+        String hash = passwordHashingService.hash("1234");
+
+        assertThat(passwordHashingService.matches("1234", hash)).isTrue();
+        assertThat(passwordHashingService.matches("4321", hash)).isFalse();
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "hash").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "match").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("password.hashing.queue.depth").gauge().value()).isEqualTo(0);
+        assertThat(meterRegistry.get("password.hashing.active").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void givenBusyPoolAndFullQueue_whenHash_thenReportSaturation() throws Exception {
+        fillPool();
+
+        assertThat(meterRegistry.get("password.hashing.active").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("password.hashing.queue.depth").gauge().value()).isEqualTo(1);
+    }
+
+    @Test(expected = PasswordHashingUnavailableException.class)
+    public void givenBusyPoolAndFullQueue_whenHash_thenRejectImmediately() throws Exception {
+        fillPool();
+
+        passwordHashingService.hash("1234");
+    }
+
+    @Test(expected = PasswordHashingUnavailableException.class)
+    public void givenHashSlowerThanTimeout_whenHash_thenGiveUp() throws Exception {
+        ReflectionTestUtils.setField(passwordHashingService, "timeoutMs", 50L);
+        ReflectionTestUtils.setField(passwordHashingService, "passwordEncoder", new BlockingPasswordEncoder());
+
+        passwordHashingService.hash("1234");
+    }
+
+    //region private methods
+    /**
+     * Blocks the only hashing thread and leaves one more hash waiting in the queue, from callers of their own.
+     */
+    private void fillPool() throws InterruptedException {
+        ReflectionTestUtils.setField(passwordHashingService, "passwordEncoder", new BlockingPasswordEncoder());
+
+        callers.submit(() -> passwordHashingService.hash("running"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        callers.submit(() -> passwordHashingService.hash("queued"));
+        for(int i = 0; i < 1000 && meterRegistry.get("password.hashing.queue.depth").gauge().value() < 1; i++) {
+            Thread.sleep(5);
+        }
+    }
+    //endregion
+
+    private class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+
+    }
+
+}
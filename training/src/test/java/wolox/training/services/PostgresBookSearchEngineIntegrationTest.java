@@ -0,0 +1,81 @@
+package wolox.training.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+import wolox.training.models.Book;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = NONE)
+@Import(PostgresBookSearchEngine.class)
+public class PostgresBookSearchEngineIntegrationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PostgresBookSearchEngine searchEngine;
+
+    private Book book;
+    private Book otherBook;
+    private Book anotherBook;
+
+    @Before
+    public void setUp(){
+        book =  new Book("J. K. Rowling", "image.png", "Harry Potter and the Philosopher's Stone",
+            "-", "Bloomsbury Publishing", "1997", 223, "9780747532743", "Fantasy");
+
+        otherBook =  new Book("J. K. Rowling", "image.png", "Harry Potter and the Chamber of Secrets",
+            "-", "Bloomsbury Publishing", "1998", 223, "9780747538493", "Fantasy");
+
+        anotherBook =  new Book("Jorge Luis Borges", "image.png", "The Aleph",
+            "-", "Editorial Losada", "1949", 146, "9780307950932", "Short Story");
+
+        entityManager.persist(book);
+        entityManager.persist(otherBook);
+        entityManager.persist(anotherBook);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void givenWordPrefixes_whenSearch_thenReturnMatchingBooks() {
+        assertThat(searchEngine.search("harr pott", 10)).containsExactlyInAnyOrder(book, otherBook);
+    }
+
+    @Test
+    public void givenAuthorAndTitleWords_whenSearch_thenRequireEveryWord() {
+        assertThat(searchEngine.search("rowling chamber", 10)).containsExactly(otherBook);
+    }
+
+    @Test
+    public void givenWordInTitleAndInAuthor_whenSearch_thenRankTitleFirst() {
+        Book borgesOnBorges =  new Book("Jorge Luis Borges", "image.png", "Borges on Writing",
+            "-", "Dutton", "1973", 173, "9780880013475", "Essay");
+        entityManager.persist(borgesOnBorges);
+        entityManager.flush();
+
+        assertThat(searchEngine.search("borges", 10)).containsExactly(borgesOnBorges, anotherBook);
+    }
+
+    @Test
+    public void givenMisspelledTitleWord_whenSearch_thenFallBackToSimilarity() {
+        assertThat(searchEngine.search("Philosofer", 10)).containsExactly(book);
+    }
+
+    @Test
+    public void givenOnlySymbols_whenSearch_thenReturnNothing() {
+        assertThat(searchEngine.search("&|!:*", 10)).isEmpty();
+    }
+
+}